@@ -0,0 +1,493 @@
+import org.opencv.core.Point;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+public class ArenaSimulator {
+
+    // Captured half screen on a 1920x1080 display, the player sits at its centre
+    private static final int VIEW_WIDTH = 960;
+    private static final int VIEW_HEIGHT = 1080;
+    private static final double ARENA_SIZE = 5000;
+
+    // One tick per captured frame
+    private static final long TICK_MS = 40;
+    private static final long UPGRADE_DELAY_MS = 2000;  // Same delay as Main
+
+    private static final int SHAPE_COUNT = 250;
+    private static final int ENEMY_COUNT = 5;
+    private static final double ENEMY_AGGRO_DISTANCE = 900;
+    private static final double ENEMY_KEEP_DISTANCE = 450;
+    private static final int ENEMY_XP = 300;
+
+    private static final int MAX_LEVEL = 45;
+    private static final double MAX_LEVEL_XP = 23536;
+    private static final int MAX_STAT_LEVEL = 7;
+    private static final int BULLET_LIFETIME_TICKS = 75;
+    private static final double TANK_RADIUS = 30;
+    private static final double BULLET_RADIUS = 8;
+
+    // Upgrade stats, indexed by number key - 1
+    private static final int HEALTH_REGEN = 0;
+    private static final int MAX_HEALTH = 1;
+    private static final int BODY_DAMAGE = 2;
+    private static final int BULLET_SPEED = 3;
+    private static final int BULLET_PENETRATION = 4;
+    private static final int BULLET_DAMAGE = 5;
+    private static final int RELOAD = 6;
+    private static final int MOVEMENT_SPEED = 7;
+
+    private final Map<Integer, Double> keyWeights;
+    private final Function<Random, Policy> policyFactory;
+    private final int maxTicks;
+    private final long seed;
+
+    // Decision function under test, called once per tick with the same inputs Main passes to RuleBasedActions
+    @FunctionalInterface
+    public interface Policy {
+        RuleBasedActions.MoveAction act(List<Detection> detections, Point playerPosition, long currentTime);
+    }
+
+    public record Statistics(int episodes, int wins, int survived, long ticks, double xp) {
+        Statistics merge(Statistics other) {
+            return new Statistics(episodes + other.episodes, wins + other.wins, survived + other.survived,
+                    ticks + other.ticks, xp + other.xp);
+        }
+
+        public double winRate() {
+            return episodes == 0 ? 0 : (double) wins / episodes;
+        }
+
+        public double survivalRate() {
+            return episodes == 0 ? 0 : (double) survived / episodes;
+        }
+
+        public double meanSurvivalSeconds() {
+            return episodes == 0 ? 0 : (double) ticks * TICK_MS / 1000 / episodes;
+        }
+
+        public double xpPerMinute() {
+            return ticks == 0 ? 0 : xp / ((double) ticks * TICK_MS / 60000);
+        }
+    }
+
+    public ArenaSimulator(Map<Integer, Double> keyWeights, Function<Random, Policy> policyFactory, int maxTicks, long seed) {
+        this.keyWeights = keyWeights;
+        this.policyFactory = policyFactory;
+        this.maxTicks = maxTicks;
+        this.seed = seed;
+    }
+
+    // RuleBasedActions with its own random movement state, so episodes don't interfere
+    public static Policy ruleBasedPolicy(Random random) {
+        RuleBasedActions.RandomMove randomMove = new RuleBasedActions.RandomMove(random);
+        return (detections, playerPosition, currentTime) ->
+                RuleBasedActions.ruleBasedActions(detections, playerPosition, currentTime, randomMove);
+    }
+
+    public Statistics run(int episodes) {
+        return ForkJoinPool.commonPool().invoke(new EpisodeTask(0, episodes));
+    }
+
+    // Splits the episode range in half until it is small enough to run on one worker
+    private class EpisodeTask extends RecursiveTask<Statistics> {
+        private static final int SEQUENTIAL_EPISODES = 2;
+        private final int from;
+        private final int to;
+
+        EpisodeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (to - from <= SEQUENTIAL_EPISODES) {
+                Statistics statistics = new Statistics(0, 0, 0, 0, 0);
+                for (int i = from; i < to; i++) {
+                    statistics = statistics.merge(new Episode(new Random(seed + i)).play());
+                }
+                return statistics;
+            }
+            int middle = (from + to) >>> 1;
+            EpisodeTask left = new EpisodeTask(from, middle);
+            left.fork();
+            Statistics right = new EpisodeTask(middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private enum ShapeKind {
+        SQUARE("Block (Square)", 10, 10, 20, 2),
+        TRIANGLE("Block (Triangle)", 25, 30, 22, 3),
+        PENTAGON("Block (Pentagon)", 130, 100, 38, 5);
+
+        private final String label;
+        private final int xp;
+        private final double health;
+        private final double radius;
+        private final double bodyDamage;
+
+        ShapeKind(String label, int xp, double health, double radius, double bodyDamage) {
+            this.label = label;
+            this.xp = xp;
+            this.health = health;
+            this.radius = radius;
+            this.bodyDamage = bodyDamage;
+        }
+    }
+
+    private static class Shape {
+        ShapeKind kind;
+        double x;
+        double y;
+        double health;
+    }
+
+    private static class Tank {
+        double x;
+        double y;
+        double health;
+        double wanderAngle;
+        int reloadTicks;
+    }
+
+    private static class Bullet {
+        double x;
+        double y;
+        double vx;
+        double vy;
+        double damage;
+        double penetration;
+        int ticksLeft;
+        boolean enemy;
+    }
+
+    // One game from spawn to death or maxTicks, all state is confined to the worker running it
+    private class Episode {
+        private final Random random;
+        private final Policy policy;
+        private final List<Shape> shapes = new ArrayList<>();
+        private final List<Tank> enemies = new ArrayList<>();
+        private final List<Bullet> bullets = new ArrayList<>();
+        private final List<Detection> detections = new ArrayList<>();
+        private final Map<Integer, Integer> keyPressCount = new HashMap<>();
+        private final int[] stats = new int[8];
+
+        private double playerX = ARENA_SIZE / 2;
+        private double playerY = ARENA_SIZE / 2;
+        private double health;
+        private double xp = 0;
+        private int level = 1;
+        private int upgradePoints = 0;
+        private int playerReloadTicks = 0;
+        private long lastUpgradeTime = -UPGRADE_DELAY_MS;
+
+        Episode(Random random) {
+            this.random = random;
+            this.policy = policyFactory.apply(random);
+            for (int i = KeyEvent.VK_1; i <= KeyEvent.VK_8; i++) {
+                keyPressCount.put(i, 0);
+            }
+            for (int i = 0; i < SHAPE_COUNT; i++) {
+                shapes.add(spawnShape(new Shape()));
+            }
+            for (int i = 0; i < ENEMY_COUNT; i++) {
+                enemies.add(spawnEnemy(new Tank()));
+            }
+            health = maxHealth();
+        }
+
+        Statistics play() {
+            int tick = 0;
+            while (tick < maxTicks && health > 0) {
+                step(tick * TICK_MS);
+                tick++;
+            }
+            return new Statistics(1, level >= MAX_LEVEL ? 1 : 0, health > 0 ? 1 : 0, tick, xp);
+        }
+
+        private void step(long currentTime) {
+            Point playerPosition = new Point(VIEW_WIDTH / 2.0, VIEW_HEIGHT / 2.0);
+            buildDetections(playerPosition);
+
+            RuleBasedActions.MoveAction moveAction = policy.act(detections, playerPosition, currentTime);
+            movePlayer(moveAction.moveX(), moveAction.moveY());
+            if (moveAction.target() != null) {
+                firePlayer(moveAction.target());
+            }
+
+            if (upgradePoints > 0 && currentTime - lastUpgradeTime >= UPGRADE_DELAY_MS) {
+                upgrade();
+                lastUpgradeTime = currentTime;
+            }
+
+            updateEnemies();
+            updateBullets();
+            collideBodies();
+
+            double regen = (0.3 + 0.6 * stats[HEALTH_REGEN]) * TICK_MS / 1000;
+            health = Math.min(maxHealth(), health + regen);
+            if (playerReloadTicks > 0) {
+                playerReloadTicks--;
+            }
+        }
+
+        // The same labels the live detectors produce, in capture coordinates
+        private void buildDetections(Point playerPosition) {
+            detections.clear();
+            detections.add(new Detection("self", playerPosition));
+            for (Shape shape : shapes) {
+                addIfVisible(shape.kind.label, shape.x, shape.y);
+            }
+            for (Tank enemy : enemies) {
+                addIfVisible("enemy_tank", enemy.x, enemy.y);
+            }
+            for (Bullet bullet : bullets) {
+                if (bullet.enemy) {
+                    addIfVisible("enemy_bullet", bullet.x, bullet.y);
+                }
+            }
+            if (upgradePoints > 0) {
+                detections.add(new Detection("upgrade", new Point(VIEW_WIDTH / 8.0, VIEW_HEIGHT * 7 / 8.0)));
+            }
+        }
+
+        private void addIfVisible(String type, double x, double y) {
+            double screenX = x - playerX + VIEW_WIDTH / 2.0;
+            double screenY = y - playerY + VIEW_HEIGHT / 2.0;
+            if (screenX >= 0 && screenX < VIEW_WIDTH && screenY >= 0 && screenY < VIEW_HEIGHT) {
+                detections.add(new Detection(type, new Point(screenX, screenY)));
+            }
+        }
+
+        // WASD is digital, as in GameInputHandler.applyMovement only the sign of each axis matters
+        private void movePlayer(double moveX, double moveY) {
+            double dx = Math.signum(moveX);
+            double dy = Math.signum(moveY);
+            if (dx == 0 && dy == 0) {
+                return;
+            }
+            double speed = (6 + 0.5 * stats[MOVEMENT_SPEED]) / Math.hypot(dx, dy);
+            playerX = clamp(playerX + dx * speed);
+            playerY = clamp(playerY + dy * speed);
+        }
+
+        private void firePlayer(Point target) {
+            if (playerReloadTicks > 0) {
+                return;
+            }
+            double aimX = target.x - VIEW_WIDTH / 2.0;
+            double aimY = target.y - VIEW_HEIGHT / 2.0;
+            double length = Math.hypot(aimX, aimY);
+            if (length == 0) {
+                return;
+            }
+            double speed = 12 + 1.5 * stats[BULLET_SPEED];
+            bullets.add(newBullet(playerX, playerY, aimX / length * speed, aimY / length * speed,
+                    5 + 2 * stats[BULLET_DAMAGE], 5 + 3 * stats[BULLET_PENETRATION], false));
+            playerReloadTicks = (int) Math.max(4, 15 - 1.3 * stats[RELOAD]);
+        }
+
+        // Mirrors GameInputHandler.upgradeTank, a press on a maxed stat is wasted like in the game
+        private void upgrade() {
+            int selectedKey = GameInputHandler.chooseUpgradeKey(keyPressCount, keyWeights, random);
+            if (selectedKey == -1) {
+                return;
+            }
+            keyPressCount.put(selectedKey, keyPressCount.get(selectedKey) + 1);
+
+            int stat = selectedKey - KeyEvent.VK_1;
+            if (stats[stat] < MAX_STAT_LEVEL) {
+                double healthFraction = health / maxHealth();
+                stats[stat]++;
+                upgradePoints--;
+                health = healthFraction * maxHealth();
+            }
+        }
+
+        private void updateEnemies() {
+            for (Tank enemy : enemies) {
+                double dx = playerX - enemy.x;
+                double dy = playerY - enemy.y;
+                double distance = Math.hypot(dx, dy);
+
+                if (distance < ENEMY_AGGRO_DISTANCE && distance > 0) {
+                    // Close in to firing range, then circle the player while shooting
+                    double direction = distance > ENEMY_KEEP_DISTANCE ? 1 : 0;
+                    enemy.x = clamp(enemy.x + (dx / distance * direction - dy / distance * 0.5) * 5);
+                    enemy.y = clamp(enemy.y + (dy / distance * direction + dx / distance * 0.5) * 5);
+
+                    if (enemy.reloadTicks == 0) {
+                        bullets.add(newBullet(enemy.x, enemy.y, dx / distance * 11, dy / distance * 11, 8, 10, true));
+                        enemy.reloadTicks = 18;
+                    }
+                } else {
+                    enemy.wanderAngle += (random.nextDouble() - 0.5) * 0.2;
+                    enemy.x = clamp(enemy.x + Math.cos(enemy.wanderAngle) * 4);
+                    enemy.y = clamp(enemy.y + Math.sin(enemy.wanderAngle) * 4);
+                }
+
+                if (enemy.reloadTicks > 0) {
+                    enemy.reloadTicks--;
+                }
+            }
+        }
+
+        private void updateBullets() {
+            for (int i = bullets.size() - 1; i >= 0; i--) {
+                Bullet bullet = bullets.get(i);
+                bullet.x += bullet.vx;
+                bullet.y += bullet.vy;
+                bullet.ticksLeft--;
+
+                if (bullet.enemy) {
+                    if (touches(bullet.x, bullet.y, BULLET_RADIUS, playerX, playerY, TANK_RADIUS)) {
+                        health -= bullet.damage;
+                        bullet.penetration = 0;
+                    }
+                } else {
+                    for (Shape shape : shapes) {
+                        if (bullet.penetration > 0 && touches(bullet.x, bullet.y, BULLET_RADIUS, shape.x, shape.y, shape.kind.radius)) {
+                            shape.health -= bullet.damage;
+                            bullet.penetration -= shape.kind.bodyDamage * 2;
+                            if (shape.health <= 0) {
+                                gainXp(shape.kind.xp);
+                                spawnShape(shape);
+                            }
+                        }
+                    }
+                    for (Tank enemy : enemies) {
+                        if (bullet.penetration > 0 && touches(bullet.x, bullet.y, BULLET_RADIUS, enemy.x, enemy.y, TANK_RADIUS)) {
+                            enemy.health -= bullet.damage;
+                            bullet.penetration -= 10;
+                            if (enemy.health <= 0) {
+                                gainXp(ENEMY_XP);
+                                spawnEnemy(enemy);
+                            }
+                        }
+                    }
+                }
+
+                if (bullet.penetration <= 0 || bullet.ticksLeft <= 0) {
+                    // Order doesn't matter, swap-remove keeps this linear
+                    bullets.set(i, bullets.get(bullets.size() - 1));
+                    bullets.remove(bullets.size() - 1);
+                }
+            }
+        }
+
+        // Ramming damage between the player and whatever it overlaps
+        private void collideBodies() {
+            double bodyDamage = 2 + stats[BODY_DAMAGE];
+            for (Shape shape : shapes) {
+                if (touches(playerX, playerY, TANK_RADIUS, shape.x, shape.y, shape.kind.radius)) {
+                    health -= shape.kind.bodyDamage;
+                    shape.health -= bodyDamage;
+                    if (shape.health <= 0) {
+                        gainXp(shape.kind.xp);
+                        spawnShape(shape);
+                    }
+                }
+            }
+            for (Tank enemy : enemies) {
+                if (touches(playerX, playerY, TANK_RADIUS, enemy.x, enemy.y, TANK_RADIUS)) {
+                    health -= 5;
+                    enemy.health -= bodyDamage;
+                    if (enemy.health <= 0) {
+                        gainXp(ENEMY_XP);
+                        spawnEnemy(enemy);
+                    }
+                }
+            }
+        }
+
+        private void gainXp(int amount) {
+            xp += amount;
+            while (level < MAX_LEVEL && xp >= xpForLevel(level + 1)) {
+                level++;
+                // Like the game, a point every level up to 28 and every third level after that
+                if (level <= 28 || level % 3 == 0) {
+                    upgradePoints++;
+                }
+            }
+        }
+
+        private double maxHealth() {
+            return 50 + 20 * stats[MAX_HEALTH];
+        }
+
+        private Shape spawnShape(Shape shape) {
+            double roll = random.nextDouble();
+            shape.kind = roll < 0.7 ? ShapeKind.SQUARE : roll < 0.92 ? ShapeKind.TRIANGLE : ShapeKind.PENTAGON;
+            shape.health = shape.kind.health;
+            shape.x = random.nextDouble() * ARENA_SIZE;
+            shape.y = random.nextDouble() * ARENA_SIZE;
+            return shape;
+        }
+
+        // Enemies (re)spawn away from the player so a kill isn't followed by an instant ambush
+        private Tank spawnEnemy(Tank enemy) {
+            do {
+                enemy.x = random.nextDouble() * ARENA_SIZE;
+                enemy.y = random.nextDouble() * ARENA_SIZE;
+            } while (Math.hypot(enemy.x - playerX, enemy.y - playerY) < ENEMY_AGGRO_DISTANCE * 1.5);
+            enemy.health = 150;
+            enemy.wanderAngle = random.nextDouble() * Math.PI * 2;
+            enemy.reloadTicks = 0;
+            return enemy;
+        }
+    }
+
+    private static Bullet newBullet(double x, double y, double vx, double vy, double damage, double penetration, boolean enemy) {
+        Bullet bullet = new Bullet();
+        bullet.x = x;
+        bullet.y = y;
+        bullet.vx = vx;
+        bullet.vy = vy;
+        bullet.damage = damage;
+        bullet.penetration = penetration;
+        bullet.ticksLeft = BULLET_LIFETIME_TICKS;
+        bullet.enemy = enemy;
+        return bullet;
+    }
+
+    private static boolean touches(double x1, double y1, double r1, double x2, double y2, double r2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        double reach = r1 + r2;
+        return dx * dx + dy * dy < reach * reach;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(ARENA_SIZE, value));
+    }
+
+    private static double xpForLevel(int level) {
+        return MAX_LEVEL_XP * Math.pow((level - 1) / (double) (MAX_LEVEL - 1), 2.2);
+    }
+
+    public static void main(String[] args) {
+        int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int maxTicks = args.length > 1 ? Integer.parseInt(args[1]) : 15000;  // 10 minutes of game time
+
+        ArenaSimulator simulator = new ArenaSimulator(GameInputHandler.getKeyWeights(), ArenaSimulator::ruleBasedPolicy, maxTicks, 42);
+
+        long start = System.nanoTime();
+        Statistics statistics = simulator.run(episodes);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Episodes: %d on %d workers in %.2f s (%.0f ticks/s)%n",
+                statistics.episodes(), ForkJoinPool.commonPool().getParallelism(), seconds, statistics.ticks() / seconds);
+        System.out.printf("Win rate (level %d): %.3f%n", MAX_LEVEL, statistics.winRate());
+        System.out.printf("Survival rate: %.3f, mean survival: %.1f s%n", statistics.survivalRate(), statistics.meanSurvivalSeconds());
+        System.out.printf("XP per minute: %.1f%n", statistics.xpPerMinute());
+    }
+}
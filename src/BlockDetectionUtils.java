@@ -2,7 +2,6 @@ import org.opencv.core.*;
 import org.opencv.core.Point;
 import org.opencv.imgproc.Imgproc;
 
-import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -19,21 +18,20 @@ public class BlockDetectionUtils {
         Mat hsvFrame = new Mat();
         Imgproc.cvtColor(frame, hsvFrame, Imgproc.COLOR_BGR2HSV);
 
-        // Define color ranges
-        Scalar lowerPurple = new Scalar(100, 50, 50);
-        Scalar upperPurple = new Scalar(160, 255, 255);
-        Scalar lowerRed = new Scalar(0, 50, 50);
-        Scalar upperRed = new Scalar(10, 255, 255);
-        Scalar lowerYellow = new Scalar(20, 100, 100);
-        Scalar upperYellow = new Scalar(30, 255, 255);
+        return detectObjects(frame, hsvFrame, detections);
+    }
+
+    // For callers that already have the frame in HSV
+    public static List<Detection> detectObjects(Mat frame, Mat hsvFrame, List<Detection> detections) {
+        DetectionParams params = DetectionParams.DEFAULTS;
 
         try (ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT)) {
             List<Future<List<Detection>>> futures = new ArrayList<>();
 
             // Create tasks for each color mask
-            futures.add(executorService.submit(() -> detectWithMask(hsvFrame, lowerRed, upperRed, frame, "block_red")));
-            futures.add(executorService.submit(() -> detectWithMask(hsvFrame, lowerYellow, upperYellow, frame, "block_yellow")));
-            futures.add(executorService.submit(() -> detectWithMask(hsvFrame, lowerPurple, upperPurple, frame, "block_purple")));
+            futures.add(executorService.submit(() -> detectWithMask(hsvFrame, params.lowerRed(), params.upperRed(), frame, "block_red", params, true)));
+            futures.add(executorService.submit(() -> detectWithMask(hsvFrame, params.lowerYellow(), params.upperYellow(), frame, "block_yellow", params, true)));
+            futures.add(executorService.submit(() -> detectWithMask(hsvFrame, params.lowerPurple(), params.upperPurple(), frame, "block_purple", params, true)));
 
             // Collect results from all futures
             for (Future<List<Detection>> future : futures) {
@@ -50,7 +48,8 @@ public class BlockDetectionUtils {
     }
 
 
-    private static List<Detection> detectWithMask(Mat hsvFrame, Scalar lowerBound, Scalar upperBound, Mat frame, String type) {
+    // Package-private so ParameterTuner can run it with candidate params and without drawing
+    static List<Detection> detectWithMask(Mat hsvFrame, Scalar lowerBound, Scalar upperBound, Mat frame, String type, DetectionParams params, boolean annotate) {
         List<Detection> detections = new ArrayList<>();
         Mat mask = new Mat();
 
@@ -62,10 +61,9 @@ public class BlockDetectionUtils {
         Mat hierarchy = new Mat();
         Imgproc.findContours(mask, contours, hierarchy, Imgproc.RETR_TREE, Imgproc.CHAIN_APPROX_SIMPLE);
 
-        // Get coordinates of bottom 20th of screen
-        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        int screenBottomY = (screenSize.height / 20) * 19;
-        int screenTopThirdY = (screenSize.height / 3);
+        // Get coordinates of bottom 20th of screen (the capture is full screen height)
+        int screenBottomY = (hsvFrame.rows() / 20) * 19;
+        int screenTopThirdY = (hsvFrame.rows() / 3);
 
         for (MatOfPoint contour : contours) {
             double area = Imgproc.contourArea(contour);
@@ -83,13 +81,13 @@ public class BlockDetectionUtils {
                 }
 
                 if (approx.total() == 3) {
-                    if (450 <= area && area <= 750 && (Objects.equals(type, "block_red"))) {
+                    if (params.minTriangleArea() <= area && area <= params.maxTriangleArea() && (Objects.equals(type, "block_red"))) {
                         label = "Block (Triangle)";
                     } else if (50 <= area && area <= 450) {
                         label = "Enemy Drone";
                     }
                 } else if (approx.total() == 4) {
-                    if ((600 <= area && area <= 1100) && (Objects.equals(type, "block_yellow"))) {
+                    if ((params.minSquareArea() <= area && area <= params.maxSquareArea()) && (Objects.equals(type, "block_yellow"))) {
                         label = "Block (Square)";
                     } else if (Objects.equals(type, "block_purple") && boundingRect.y <= screenTopThirdY && area > 8700 &&
                             (220 < boundingRect.width && 240 > boundingRect.width) &&
@@ -97,13 +95,15 @@ public class BlockDetectionUtils {
                         label = "Possible death screen";
                         possible_death = true;
                     }
-                } else if (approx.total() == 5 && (1400 <= area && area <= 2300) && (Objects.equals(type, "block_purple"))) {
+                } else if (approx.total() == 5 && (params.minPentagonArea() <= area && area <= params.maxPentagonArea()) && (Objects.equals(type, "block_purple"))) {
                     label = "Block (Pentagon)";
                 }
 
                 if (!label.isEmpty()) {
-                    Imgproc.rectangle(frame, boundingRect.tl(), boundingRect.br(), new Scalar(0, 255, 255), 2);
-                    Imgproc.putText(frame, label + ": " + (int) area + " : " + boundingRect.width + " : " + boundingRect.height, boundingRect.tl(), Imgproc.FONT_HERSHEY_SIMPLEX, 0.5, new Scalar(0, 255, 255), 2);
+                    if (annotate) {
+                        Imgproc.rectangle(frame, boundingRect.tl(), boundingRect.br(), new Scalar(0, 255, 255), 2);
+                        Imgproc.putText(frame, label + ": " + (int) area + " : " + boundingRect.width + " : " + boundingRect.height, boundingRect.tl(), Imgproc.FONT_HERSHEY_SIMPLEX, 0.5, new Scalar(0, 255, 255), 2);
+                    }
                     detections.add(new Detection((possible_death ? "possible_death" : label), new Point(boundingRect.x + (double) boundingRect.width / 2, boundingRect.y + (double) boundingRect.height / 2)));
                 }
             }
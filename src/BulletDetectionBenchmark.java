@@ -0,0 +1,211 @@
+import org.opencv.core.*;
+import org.opencv.core.Point;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BulletDetectionBenchmark {
+
+    // Size of the captured half screen on a 1920x1080 display
+    private static final int FRAME_WIDTH = 960;
+    private static final int FRAME_HEIGHT = 1080;
+
+    private static final Scalar BACKGROUND = new Scalar(205, 205, 205);
+    private static final Scalar BULLET_RED = new Scalar(84, 78, 241);
+    // The range of bullet sizes the detector's area and fill-ratio limits are meant to accept
+    private static final int MIN_BULLET_RADIUS = 2;
+    private static final int MAX_BULLET_RADIUS = 12;
+    private static final double BULLET_SPEED = 12;
+
+    // Red distractors that must not be reported as bullets, they drift with the camera
+    private static final Scalar TRIANGLE_RED = new Scalar(119, 118, 252);
+    private static final Scalar BARREL = new Scalar(153, 153, 153);
+    private static final int TRIANGLE_COUNT = 15;
+    private static final int TANK_COUNT = 4;
+    private static final int TRIANGLE_RADIUS = 22;
+    private static final int TANK_RADIUS = 30;
+    private static final double CAMERA_DX = 5;
+    private static final double CAMERA_DY = 3;
+
+    // A detection within this distance of a bullet counts as a hit
+    private static final double MATCH_DISTANCE = 8;
+
+    private static final int FRAMES = 200;
+    private static final int WARMUP_FRAMES = 20;
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    public static void main(String[] args) {
+        int[] bulletCounts = {10, 50, 100, 300};
+
+        System.out.printf("%8s  %10s  %10s  %10s  %10s  %10s  %10s%n",
+                "bullets", "hough ms", "recall", "fp/frame", "diff ms", "recall", "fp/frame");
+        for (int bulletCount : bulletCounts) {
+            Result hough = run(bulletCount, false);
+            Result diff = run(bulletCount, true);
+            System.out.printf("%8d  %10.2f  %10.3f  %10.2f  %10.2f  %10.3f  %10.2f%n",
+                    bulletCount, hough.millisPerFrame, hough.recall, hough.falsePositivesPerFrame,
+                    diff.millisPerFrame, diff.recall, diff.falsePositivesPerFrame);
+        }
+    }
+
+    private static Result run(int bulletCount, boolean frameDifference) {
+        Random random = new Random(42);
+        // x, y, dx, dy, radius
+        double[][] bullets = new double[bulletCount][5];
+        for (double[] bullet : bullets) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            bullet[0] = random.nextDouble() * FRAME_WIDTH;
+            bullet[1] = random.nextDouble() * FRAME_HEIGHT;
+            bullet[2] = Math.cos(angle) * BULLET_SPEED;
+            bullet[3] = Math.sin(angle) * BULLET_SPEED;
+            bullet[4] = MIN_BULLET_RADIUS + random.nextInt(MAX_BULLET_RADIUS - MIN_BULLET_RADIUS + 1);
+        }
+        double[][] triangles = randomPositions(TRIANGLE_COUNT, random);
+        double[][] tanks = randomPositions(TANK_COUNT, random);
+
+        BulletDetectionUtils.reset();
+        long totalNanos = 0;
+        long found = 0;
+        long expected = 0;
+        long falsePositives = 0;
+
+        for (int frameIndex = 0; frameIndex < WARMUP_FRAMES + FRAMES; frameIndex++) {
+            Mat frame = new Mat(FRAME_HEIGHT, FRAME_WIDTH, CvType.CV_8UC3, BACKGROUND);
+            for (double[] triangle : triangles) {
+                moveWithCamera(triangle);
+                drawTriangle(frame, triangle[0], triangle[1]);
+            }
+            for (double[] tank : tanks) {
+                moveWithCamera(tank);
+                drawTank(frame, tank[0], tank[1]);
+            }
+            for (double[] bullet : bullets) {
+                moveBullet(bullet);
+                Imgproc.circle(frame, new Point(bullet[0], bullet[1]), (int) bullet[4], BULLET_RED, Imgproc.FILLED);
+            }
+
+            List<Detection> detections = new ArrayList<>();
+            long start = System.nanoTime();
+            if (frameDifference) {
+                BulletDetectionUtils.detectBullets(frame, detections);
+            } else {
+                detectBulletsHough(frame, detections);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (frameIndex >= WARMUP_FRAMES) {
+                totalNanos += elapsed;
+                int matched = countMatched(bullets, detections);
+                found += matched;
+                falsePositives += detections.size() - matched;
+                expected += bulletCount;
+            }
+        }
+
+        return new Result(totalNanos / 1e6 / FRAMES, (double) found / expected, (double) falsePositives / FRAMES);
+    }
+
+    // The small-radius Hough branch CircleDetectionUtils used before the frame-difference detector
+    private static void detectBulletsHough(Mat frame, List<Detection> detections) {
+        Mat grayFrame = new Mat();
+        Imgproc.cvtColor(frame, grayFrame, Imgproc.COLOR_BGR2GRAY);
+        Imgproc.GaussianBlur(grayFrame, grayFrame, new Size(9, 9), 2, 2);
+
+        Mat circles = new Mat();
+        Imgproc.HoughCircles(grayFrame, circles, Imgproc.HOUGH_GRADIENT, 1.0, (double) grayFrame.rows() / 16, 80, 30, 2, 40);
+
+        for (int i = 0; i < circles.cols(); i++) {
+            double[] circleData = circles.get(0, i);
+            if (circleData == null) continue;
+
+            int x = (int) Math.round(circleData[0]);
+            int y = (int) Math.round(circleData[1]);
+            int radius = (int) Math.round(circleData[2]);
+            if (radius < 2 || radius > 24) continue;
+
+            int patchSize = 5;
+            int patchX = Math.max(0, Math.min(x - patchSize, frame.cols() - patchSize * 2));
+            int patchY = Math.max(0, Math.min(y - patchSize, frame.rows() - patchSize * 2));
+            Mat colorPatch = new Mat(frame, new Rect(patchX, patchY, patchSize * 2, patchSize * 2));
+
+            if ("Red".equals(CircleDetectionUtils.classifyColor(colorPatch))) {
+                detections.add(new Detection("enemy_bullet", new Point(x, y)));
+            }
+        }
+    }
+
+    private static void moveBullet(double[] bullet) {
+        bullet[0] += bullet[2];
+        bullet[1] += bullet[3];
+
+        // Bounce off the frame edges so the bullet count stays constant
+        if (bullet[0] < bullet[4] || bullet[0] > FRAME_WIDTH - bullet[4]) {
+            bullet[2] = -bullet[2];
+        }
+        if (bullet[1] < bullet[4] || bullet[1] > FRAME_HEIGHT - bullet[4]) {
+            bullet[3] = -bullet[3];
+        }
+    }
+
+    private static double[][] randomPositions(int count, Random random) {
+        double[][] positions = new double[count][2];
+        for (double[] position : positions) {
+            position[0] = random.nextDouble() * FRAME_WIDTH;
+            position[1] = random.nextDouble() * FRAME_HEIGHT;
+        }
+        return positions;
+    }
+
+    // Static objects appear to move opposite to the player, wrapping at the frame edges
+    private static void moveWithCamera(double[] position) {
+        position[0] = (position[0] - CAMERA_DX + FRAME_WIDTH) % FRAME_WIDTH;
+        position[1] = (position[1] - CAMERA_DY + FRAME_HEIGHT) % FRAME_HEIGHT;
+    }
+
+    private static void drawTriangle(Mat frame, double x, double y) {
+        Point[] corners = new Point[3];
+        for (int i = 0; i < 3; i++) {
+            double angle = Math.PI * 2 * i / 3 - Math.PI / 2;
+            corners[i] = new Point(x + Math.cos(angle) * TRIANGLE_RADIUS, y + Math.sin(angle) * TRIANGLE_RADIUS);
+        }
+        Imgproc.fillPoly(frame, List.of(new MatOfPoint(corners)), TRIANGLE_RED);
+    }
+
+    private static void drawTank(Mat frame, double x, double y) {
+        Imgproc.rectangle(frame, new Point(x, y - 9), new Point(x + TANK_RADIUS + 20, y + 9), BARREL, Imgproc.FILLED);
+        Imgproc.circle(frame, new Point(x, y), TANK_RADIUS, BULLET_RED, Imgproc.FILLED);
+    }
+
+    // Greedy one-to-one matching, so overlapping bullets merged into one blob count once
+    private static int countMatched(double[][] bullets, List<Detection> detections) {
+        boolean[] used = new boolean[detections.size()];
+        int matched = 0;
+        for (double[] bullet : bullets) {
+            int best = -1;
+            double bestDistance = MATCH_DISTANCE * MATCH_DISTANCE;
+            for (int i = 0; i < detections.size(); i++) {
+                if (used[i]) continue;
+
+                double dx = detections.get(i).position().x - bullet[0];
+                double dy = detections.get(i).position().y - bullet[1];
+                double distance = dx * dx + dy * dy;
+                if (distance <= bestDistance) {
+                    best = i;
+                    bestDistance = distance;
+                }
+            }
+            if (best != -1) {
+                used[best] = true;
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private record Result(double millisPerFrame, double recall, double falsePositivesPerFrame) {}
+}
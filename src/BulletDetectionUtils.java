@@ -0,0 +1,135 @@
+import org.opencv.core.*;
+import org.opencv.core.Point;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.List;
+
+public class BulletDetectionUtils {
+
+    // Red hue class, same ranges as CircleDetectionUtils.classifyColor
+    private static final Scalar DARK_LOWER_RED = new Scalar(0, 100, 100);
+    private static final Scalar DARK_UPPER_RED = new Scalar(10, 255, 255);
+    private static final Scalar BRIGHT_LOWER_RED = new Scalar(160, 100, 100);
+    private static final Scalar BRIGHT_UPPER_RED = new Scalar(180, 255, 255);
+
+    // Minimum grey-level change for a pixel to count as moving
+    private static final double MOTION_THRESHOLD = 25;
+
+    // Area window for a bullet blob (radius ~2-12 px), red triangles (450-750) and tanks sit mostly above it
+    private static final int MIN_BULLET_AREA = 6;
+    private static final int MAX_BULLET_AREA = 500;
+
+    // Blob area over the area of the circle spanning its bounding box. A filled disc is ~1,
+    // a triangle ~0.55 and the slivers left by moving shapes far less.
+    private static final double MIN_FILL_RATIO = 0.8;
+    private static final double MAX_FILL_RATIO = 1.2;
+
+    private static final Mat OPEN_KERNEL = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(3, 3));
+    // Wider than the largest bullet, so a bullet that moved less than its own size is still covered
+    // whole (rect kernels dilate in constant time per pixel)
+    private static final Mat MOTION_KERNEL = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(25, 25));
+
+    // Grey frame from the previous call, the detector needs two frames to see motion
+    private static Mat previousGray = null;
+
+    public static List<Detection> detectBullets(Mat frame, List<Detection> detections) {
+        Mat gray = new Mat();
+        Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+        Mat hsvFrame = new Mat();
+        Imgproc.cvtColor(frame, hsvFrame, Imgproc.COLOR_BGR2HSV);
+        return detectBullets(gray, hsvFrame, frame, true, detections);
+    }
+
+    // gray and hsvFrame must be taken from the frame before anything is drawn on it: annotations
+    // differ between frames and would show up as motion. gray is kept for the next call, so callers
+    // must not reuse it. Bullets are drawn on frame when annotate is set.
+    public static synchronized List<Detection> detectBullets(Mat gray, Mat hsvFrame, Mat frame, boolean annotate, List<Detection> detections) {
+        // First frame (or a resolution change), nothing to compare against yet
+        if (previousGray == null || previousGray.rows() != gray.rows() || previousGray.cols() != gray.cols()) {
+            previousGray = gray;
+            return detections;
+        }
+
+        // Pixels that changed since the last frame, grown so whole shapes are covered, not just their edges
+        Mat motion = new Mat();
+        Core.absdiff(gray, previousGray, motion);
+        Imgproc.threshold(motion, motion, MOTION_THRESHOLD, 255, Imgproc.THRESH_BINARY);
+        Imgproc.dilate(motion, motion, MOTION_KERNEL);
+        previousGray = gray;
+
+        // Restrict to the red hue class
+        Mat redMask = new Mat();
+        Mat brightRedMask = new Mat();
+        Core.inRange(hsvFrame, DARK_LOWER_RED, DARK_UPPER_RED, redMask);
+        Core.inRange(hsvFrame, BRIGHT_LOWER_RED, BRIGHT_UPPER_RED, brightRedMask);
+        Core.bitwise_or(redMask, brightRedMask, redMask);
+
+        // Moving red pixels, with single-pixel noise and edge slivers removed
+        Mat movingRed = new Mat();
+        Core.bitwise_and(redMask, motion, movingRed);
+        Imgproc.morphologyEx(movingRed, movingRed, Imgproc.MORPH_OPEN, OPEN_KERNEL);
+
+        // Every blob in one linear pass
+        Mat labels = new Mat();
+        Mat stats = new Mat();
+        Mat centroids = new Mat();
+        int count = Imgproc.connectedComponentsWithStats(movingRed, labels, stats, centroids);
+        if (count <= 1) {
+            return detections;
+        }
+
+        // Read the tables in bulk rather than one JNI call per component
+        int[] statData = new int[count * 5];
+        double[] centroidData = new double[count * 2];
+        stats.get(0, 0, statData);
+        centroids.get(0, 0, centroidData);
+
+        // Label 0 is the background
+        for (int i = 1; i < count; i++) {
+            int area = statData[i * 5 + Imgproc.CC_STAT_AREA];
+            if (area < MIN_BULLET_AREA || area > MAX_BULLET_AREA) {
+                continue;
+            }
+
+            int width = statData[i * 5 + Imgproc.CC_STAT_WIDTH];
+            int height = statData[i * 5 + Imgproc.CC_STAT_HEIGHT];
+
+            // Bullets are round, skip long thin strips left behind by moving tanks and triangles
+            if (width > 2 * height || height > 2 * width) {
+                continue;
+            }
+
+            // A disc of radius r spans 2r + 1 pixels
+            double circleRadius = (Math.max(width, height) - 1) / 2.0;
+            double fillRatio = area / (Math.PI * Math.max(circleRadius, 1) * Math.max(circleRadius, 1));
+            if (fillRatio < MIN_FILL_RATIO || fillRatio > MAX_FILL_RATIO) {
+                continue;
+            }
+
+            Detection bullet = new Detection("enemy_bullet", new Point(centroidData[i * 2], centroidData[i * 2 + 1]), circleRadius);
+            if (annotate) {
+                drawBullet(frame, bullet);
+            }
+            detections.add(bullet);
+        }
+
+        return detections;
+    }
+
+    // Draws the bullets in detections, for callers that annotate once every detector is done
+    public static void drawBullets(Mat frame, List<Detection> detections) {
+        for (Detection detection : detections) {
+            if ("enemy_bullet".equals(detection.type())) {
+                drawBullet(frame, detection);
+            }
+        }
+    }
+
+    private static void drawBullet(Mat frame, Detection bullet) {
+        Imgproc.circle(frame, bullet.position(), Math.max((int) Math.round(bullet.radius()), 2), new Scalar(0, 0, 255), 2);
+    }
+
+    public static synchronized void reset() {
+        previousGray = null;
+    }
+}
@@ -2,11 +2,32 @@ import org.opencv.core.*;
 import org.opencv.core.Point;
 import org.opencv.imgproc.Imgproc;
 
-import java.awt.*;
 import java.util.List;
 
 public class CircleDetectionUtils {
 
+    // Define HSV ranges for color classification
+    private static final double[] LOWER_BLUE = {90, 150, 50};
+    private static final double[] UPPER_BLUE = {140, 255, 255};
+    private static final double[] DARK_LOWER_RED = {0, 100, 100};
+    private static final double[] DARK_UPPER_RED = {10, 255, 255};
+    private static final double[] BRIGHT_LOWER_RED = {160, 100, 100};
+    private static final double[] BRIGHT_UPPER_RED = {180, 255, 255};
+
+    // Window at the screen centre, inside the own tank's body whenever the tank is alive
+    private static final int SELF_WINDOW_SIZE = 24;
+    // Share of blue pixels the window needs to count as the own tank
+    private static final double SELF_WINDOW_MIN_FILL = 0.6;
+
+    // RoiColorUtils needs jdk.incubator.vector, without the module it fails to load on every frame
+    private static final boolean VECTOR_API_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    static {
+        if (!VECTOR_API_AVAILABLE) {
+            System.out.println("jdk.incubator.vector not available, color patches go through OpenCV (run with --add-modules jdk.incubator.vector)");
+        }
+    }
+
     public static String classifyColor(Mat bgrColor) {
         // Convert BGR to HSV
         Mat hsvColor = new Mat();
@@ -15,21 +36,25 @@ public class CircleDetectionUtils {
         // Get HSV values
         double[] hsv = hsvColor.get(0, 0);
 
-        // Define HSV ranges for color classification
-        double[] lowerBlue = {90, 150, 50};
-        double[] upperBlue = {140, 255, 255};
-        double[] darkLowerRed = {0, 100, 100};
-        double[] darkUpperRed = {10, 255, 255};
-        double[] brightLowerRed = {160, 100, 100};
-        double[] brightUpperRed = {180, 255, 255};
+        return classifyHsv(hsv);
+    }
+
+    // Same decision straight from the capture raster, without a round trip into OpenCV:
+    // only the patch's top-left pixel is converted, as that is all classifyColor(Mat) reads
+    public static String classifyColor(byte[] pixels, int stride, Rect roi) {
+        int hsvColor = RoiColorUtils.hsvAt(pixels, stride, roi.x, roi.y);
+
+        return classifyHsv(new double[]{hsvColor >> 16, (hsvColor >> 8) & 0xFF, hsvColor & 0xFF});
+    }
 
+    private static String classifyHsv(double[] hsv) {
         // Check for Blue
-        if (isWithinRange(hsv, lowerBlue, upperBlue)) {
+        if (isWithinRange(hsv, LOWER_BLUE, UPPER_BLUE)) {
             return "Blue";
         }
         // Check for Red
-        else if (isWithinRange(hsv, darkLowerRed, darkUpperRed) ||
-                isWithinRange(hsv, brightLowerRed, brightUpperRed)) {
+        else if (isWithinRange(hsv, DARK_LOWER_RED, DARK_UPPER_RED) ||
+                isWithinRange(hsv, BRIGHT_LOWER_RED, BRIGHT_UPPER_RED)) {
             return "Red";
         }
 
@@ -43,20 +68,32 @@ public class CircleDetectionUtils {
     }
 
     public static List<Detection> detectCircles(Mat frame, List<Detection> detections) {
-        // Convert frame to grayscale
+        return detectCircles(frame, null, preprocess(frame), DetectionParams.DEFAULTS, true, detections);
+    }
+
+    // pixels is the BGR capture raster frame was made from, small patches are then read from it directly
+    public static List<Detection> detectCircles(Mat frame, byte[] pixels, List<Detection> detections) {
+        return detectCircles(frame, pixels, preprocess(frame), DetectionParams.DEFAULTS, true, detections);
+    }
+
+    // Blurred grayscale input for the Hough transform, independent of the tunable params
+    static Mat preprocess(Mat frame) {
         Mat grayFrame = new Mat();
         Imgproc.cvtColor(frame, grayFrame, Imgproc.COLOR_BGR2GRAY);
         Imgproc.GaussianBlur(grayFrame, grayFrame, new Size(9, 9), 2, 2);
+        return grayFrame;
+    }
 
-        // Get screen center coordinates
-        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        int screenCenterX = screenSize.width / 4;
-        int screenCenterY = screenSize.height / 2;
+    // Package-private so ParameterTuner can reuse a cached gray frame and skip drawing
+    static List<Detection> detectCircles(Mat frame, byte[] pixels, Mat grayFrame, DetectionParams params, boolean annotate, List<Detection> detections) {
+        // Get screen center coordinates (the capture is the left half of the screen)
+        int screenCenterX = frame.cols() / 2;
+        int screenCenterY = frame.rows() / 2;
 
         // Define tolerance for how far the circle can be from the center
         int tolerance = 100;  // You can adjust this value
 
-        // Use Hough Circle Transform to detect circles
+        // Use Hough Circle Transform to detect tanks, bullets are left to BulletDetectionUtils
         Mat circles = new Mat();
         Imgproc.HoughCircles(
                 grayFrame,
@@ -64,12 +101,14 @@ public class CircleDetectionUtils {
                 Imgproc.HOUGH_GRADIENT,
                 1.0,
                 (double) grayFrame.rows() / 16,
-                80,
-                30,
-                2,
-                40
+                params.houghParam1(),
+                params.houghParam2(),
+                params.houghMinRadius(),
+                params.houghMaxRadius()
         );
 
+        boolean selfFound = false;
+
         // If some circles are detected, draw them
         if (circles.cols() > 0) {
             for (int i = 0; i < circles.cols(); i++) {
@@ -80,43 +119,74 @@ public class CircleDetectionUtils {
                 int y = (int) Math.round(circleData[1]);
                 int radius = (int) Math.round(circleData[2]);
 
-                // Average color from a small patch around the circle center
-                int patchSize = 5; // Small patch around the circle center
-                Rect roi = new Rect(Math.max(0, x - patchSize), Math.max(0, y - patchSize), patchSize * 2, patchSize * 2);
-                Mat colorPatch = new Mat(frame, roi);
-
-                // Get average color from the patch
-                Scalar averageColorScalar = Core.mean(colorPatch);
-                String bgrColorString = String.format("BGR: (%.0f, %.0f, %.0f)", averageColorScalar.val[0], averageColorScalar.val[1], averageColorScalar.val[2]);
+                // Small patch around the circle center, kept inside the frame
+                int patchSize = 5;
+                Rect roi = new Rect(
+                        Math.max(0, Math.min(x - patchSize, frame.cols() - patchSize * 2)),
+                        Math.max(0, Math.min(y - patchSize, frame.rows() - patchSize * 2)),
+                        patchSize * 2, patchSize * 2);
 
                 if (20 <= radius && radius <= 50) {
-                    String colorName = classifyColor(colorPatch);
+                    String colorName = useRaster(pixels, roi) ? classifyColor(pixels, frame.cols() * 3, roi) : classifyColor(new Mat(frame, roi));
 
                     if ("Blue".equals(colorName) && (Math.abs(x - screenCenterX) <= tolerance && Math.abs(y - screenCenterY) <= tolerance)) {
-                        drawCircle(frame, x, y, radius, "Self: " + bgrColorString, new Scalar(255, 0, 0)); // Blue color for detected circle
+                        if (annotate) {
+                            drawCircle(frame, x, y, radius, "Self: " + averageColorString(frame, pixels, roi), new Scalar(255, 0, 0)); // Blue color for detected circle
+                        }
                         detections.add(new Detection("self", new Point(x, y)));
+                        selfFound = true;
                     } else if ("Red".equals(colorName)) {
-                        drawCircle(frame, x, y, radius, "Enemy tank: " + bgrColorString, new Scalar(0, 0, 255)); // Red color for detected circle
+                        if (annotate) {
+                            drawCircle(frame, x, y, radius, "Enemy tank: " + averageColorString(frame, pixels, roi), new Scalar(0, 0, 255)); // Red color for detected circle
+                        }
                         detections.add(new Detection("enemy_tank", new Point(x, y)));
                     }
-                } else if (2 <= radius && radius <= 24) {
-                    String colorName = classifyColor(colorPatch);
-
-                    if ("Red".equals(colorName)) {
-                        drawCircle(frame, x, y, radius, "Enemy bullet: " + radius, new Scalar(0, 0, 255)); // Red color for detected circle
-                        detections.add(new Detection("enemy_bullet", new Point(x, y)));
-                    }
-//                    else if ("Blue".equals(colorName)) {
-//                        drawCircle(frame, x, y, radius, "Friendly bullet: " + bgrColorString, new Scalar(0, 0, 255)); // Red color for detected circle
-//                        detections.add(new Detection("friendly_bullet", new Point(x, y)));
-//                    }
                 }
             }
         }
 
+        // Hough loses the own tank when it overlaps shapes or other tanks, but the camera keeps it
+        // at the screen centre, so a mostly blue centre window is enough
+        if (!selfFound && isSelfAtCenter(frame, pixels)) {
+            if (annotate) {
+                drawCircle(frame, screenCenterX, screenCenterY, SELF_WINDOW_SIZE / 2, "Self (centre)", new Scalar(255, 0, 0));
+            }
+            detections.add(new Detection("self", new Point(screenCenterX, screenCenterY)));
+        }
+
         return detections;
     }
 
+    private static boolean isSelfAtCenter(Mat frame, byte[] pixels) {
+        int size = Math.min(SELF_WINDOW_SIZE, Math.min(frame.cols(), frame.rows()));
+        Rect window = new Rect((frame.cols() - size) / 2, (frame.rows() - size) / 2, size, size);
+
+        int bluePixels;
+        if (useRaster(pixels, window)) {
+            bluePixels = RoiColorUtils.countInRange(pixels, frame.cols() * 3, window.x, window.y, window.width, window.height, LOWER_BLUE, UPPER_BLUE);
+        } else {
+            Mat hsvWindow = new Mat();
+            Imgproc.cvtColor(new Mat(frame, window), hsvWindow, Imgproc.COLOR_BGR2HSV);
+            Mat blueMask = new Mat();
+            Core.inRange(hsvWindow, new Scalar(LOWER_BLUE), new Scalar(UPPER_BLUE), blueMask);
+            bluePixels = Core.countNonZero(blueMask);
+        }
+        return bluePixels >= size * size * SELF_WINDOW_MIN_FILL;
+    }
+
+    // Average color of the patch, for the on-screen label
+    private static String averageColorString(Mat frame, byte[] pixels, Rect roi) {
+        double[] averageColor = useRaster(pixels, roi)
+                ? RoiColorUtils.meanBgr(pixels, frame.cols() * 3, roi.x, roi.y, roi.width, roi.height)
+                : Core.mean(new Mat(frame, roi)).val;
+        return String.format("BGR: (%.0f, %.0f, %.0f)", averageColor[0], averageColor[1], averageColor[2]);
+    }
+
+    // Small regions are cheaper in Java than a JNI round trip, large ones stay on OpenCV
+    private static boolean useRaster(byte[] pixels, Rect roi) {
+        return VECTOR_API_AVAILABLE && pixels != null && roi.width * roi.height <= RoiColorUtils.MAX_JAVA_ROI_PIXELS;
+    }
+
     private static void drawCircle(Mat frame, int x, int y, int radius, String label, Scalar color) {
         Imgproc.circle(frame, new Point(x, y), radius, color, 2);
         Imgproc.circle(frame, new Point(x, y), 2, new Scalar(0, 0, 255), 3);
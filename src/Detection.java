@@ -1,4 +1,8 @@
 import org.opencv.core.Point;
 
-public record Detection(String type, Point position) {
+// radius is the object's size in pixels where the detector measures one, 0 otherwise
+public record Detection(String type, Point position, double radius) {
+    public Detection(String type, Point position) {
+        this(type, position, 0);
+    }
 }
@@ -0,0 +1,23 @@
+import org.opencv.core.Scalar;
+
+// Tunable detector constants, DEFAULTS are the values the bot runs with
+public record DetectionParams(
+        Scalar lowerRed, Scalar upperRed,
+        Scalar lowerYellow, Scalar upperYellow,
+        Scalar lowerPurple, Scalar upperPurple,
+        double minTriangleArea, double maxTriangleArea,
+        double minSquareArea, double maxSquareArea,
+        double minPentagonArea, double maxPentagonArea,
+        double houghParam1, double houghParam2,
+        int houghMinRadius, int houghMaxRadius) {
+
+    public static final DetectionParams DEFAULTS = new DetectionParams(
+            new Scalar(0, 50, 50), new Scalar(10, 255, 255),
+            new Scalar(20, 100, 100), new Scalar(30, 255, 255),
+            new Scalar(100, 50, 50), new Scalar(160, 255, 255),
+            450, 750,
+            600, 1100,
+            1400, 2300,
+            80, 30,
+            20, 40);
+}
@@ -70,6 +70,28 @@ public class GameInputHandler {
 
     // Function to press a weighted random number key from 1 to 8
     public void upgradeTank() {
+        int selectedKey = chooseUpgradeKey(keyPressCount, getKeyWeights(), random);
+
+        // If no keys are eligible, do nothing
+        if (selectedKey == -1) {
+            System.out.println("All number keys have been pressed 8 or more times.");
+            return;
+        }
+
+        // Press the selected key
+        robot.keyPress(selectedKey);
+        robot.keyRelease(selectedKey);
+
+        // Increment the press count for that key
+        keyPressCount.put(selectedKey, keyPressCount.get(selectedKey) + 1);
+
+        // Output the key pressed and the number of times it has been pressed
+        System.out.println("Pressed key: " + (selectedKey - KeyEvent.VK_0) + " (pressed " + keyPressCount.get(selectedKey) + " times)");
+    }
+
+    // Weighted random pick among keys pressed fewer than 8 times, -1 if there are none.
+    // Kept free of the Robot so ArenaSimulator can make the same choices headless.
+    static int chooseUpgradeKey(Map<Integer, Integer> keyPressCount, Map<Integer, Double> keyWeights, Random random) {
         // Create a list of eligible keys (not pressed 8 or more times)
         List<Integer> eligibleKeys = new ArrayList<>();
         for (Map.Entry<Integer, Integer> entry : keyPressCount.entrySet()) {
@@ -78,15 +100,10 @@ public class GameInputHandler {
             }
         }
 
-        // If no keys are eligible, do nothing
         if (eligibleKeys.isEmpty()) {
-            System.out.println("All number keys have been pressed 8 or more times.");
-            return;
+            return -1;
         }
 
-        // Define weights for keys 1-8
-        Map<Integer, Double> keyWeights = getKeyWeights();
-
         // Filter the eligible keys and calculate total weight
         double totalWeight = 0.0;
         List<Double> cumulativeWeights = new ArrayList<>();
@@ -106,19 +123,10 @@ public class GameInputHandler {
                 break;
             }
         }
-
-        // Press the selected key
-        robot.keyPress(selectedKey);
-        robot.keyRelease(selectedKey);
-
-        // Increment the press count for that key
-        keyPressCount.put(selectedKey, keyPressCount.get(selectedKey) + 1);
-
-        // Output the key pressed and the number of times it has been pressed
-        System.out.println("Pressed key: " + (selectedKey - KeyEvent.VK_0) + " (pressed " + keyPressCount.get(selectedKey) + " times)");
+        return selectedKey;
     }
 
-    private static Map<Integer, Double> getKeyWeights() {
+    static Map<Integer, Double> getKeyWeights() {
         Map<Integer, Double> keyWeights = new HashMap<>();
         keyWeights.put(KeyEvent.VK_1, 1.0);  // Health regen - High priority
         keyWeights.put(KeyEvent.VK_2, 1.0);  // Max health - High priority
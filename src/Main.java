@@ -1,11 +1,14 @@
 import org.opencv.core.*;
 import org.opencv.core.Point;
 import org.opencv.highgui.HighGui;
+import org.opencv.imgproc.Imgproc;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 
@@ -21,17 +24,25 @@ public class Main {
 
     private static volatile boolean running = true;
 
+    // Conversion target for captured frames, only touched by WarmUp and then the frame consumer
+    private static BufferedImage bgrBuffer = null;
+
     static {
         System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
     }
 
     public static void main(String[] args) throws AWTException {
-        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+        Dimension screenSize = screenSize();
         Rectangle screenRect = new Rectangle(0, 0, screenSize.width / 2, screenSize.height);
         int windowXPosition = screenSize.width / 2;
         int windowYPosition = 0;
 
-        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        // Compile and allocate the hot paths before the bot is allowed to touch the game
+        if (!"false".equals(System.getProperty("diepio.warmup"))) {
+            WarmUp.run(screenRect.width, screenRect.height, executorService);
+        }
         GameInputHandler inputHandler = new GameInputHandler();
 
         Thread frameProducer = new Thread(() -> {
@@ -50,28 +61,10 @@ public class Main {
         Thread frameConsumer = new Thread(() -> {
             while (running) {
                 try {
-                    BufferedImage screenImage = frameQueue.take();
+                    BufferedImage screenImage = toBgrImage(frameQueue.take());
+                    byte[] pixels = ((DataBufferByte) screenImage.getRaster().getDataBuffer()).getData();
                     Mat matScreen = bufferedImageToMat(screenImage);
-                    List<Detection> detections = new ArrayList<>();
-
-                    Future<Void> circlesFuture = executorService.submit(() -> {
-                        CircleDetectionUtils.detectCircles(matScreen, detections);
-                        return null;
-                    });
-
-                    Future<Void> blocksFuture = executorService.submit(() -> {
-                        BlockDetectionUtils.detectObjects(matScreen, detections);
-                        return null;
-                    });
-
-                    Future<Void> upgradesFuture = executorService.submit(() -> {
-                        UpgradeDetectionUtils.detectUpgradePossibility(matScreen, detections);
-                        return null;
-                    });
-
-                    circlesFuture.get();
-                    blocksFuture.get();
-                    upgradesFuture.get();
+                    List<Detection> detections = detectAll(matScreen, pixels, executorService);
                     displayQueue.offer(matScreen);
 
                     Point playerPosition = null;
@@ -139,14 +132,93 @@ public class Main {
         frameDisplayThread.start();
     }
 
-    private static Mat bufferedImageToMat(BufferedImage img) {
+    // From diepio.screen.width/height when both are set, otherwise asks the display. Asking opens
+    // the X display connection, and a CRaC checkpoint refuses to run with it open.
+    private static Dimension screenSize() {
+        Integer width = Integer.getInteger("diepio.screen.width");
+        Integer height = Integer.getInteger("diepio.screen.height");
+        if (width != null && height != null) {
+            return new Dimension(width, height);
+        }
+        return Toolkit.getDefaultToolkit().getScreenSize();
+    }
+
+    // Allocates the conversion buffer up front instead of on the first captured frame
+    static void allocateFrameBuffers(int width, int height) {
+        bgrBuffer = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    }
+
+    // Byte-interleaved BGR, the layout both OpenCV and RoiColorUtils expect.
+    // Reuses bgrBuffer, which is safe because the Mat made from it is a copy.
+    static BufferedImage toBgrImage(BufferedImage img) {
         if (img.getType() != BufferedImage.TYPE_3BYTE_BGR) {
-            BufferedImage convertedImg = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-            Graphics2D g = convertedImg.createGraphics();
-            g.drawImage(img, 0, 0, null);
-            g.dispose();
-            img = convertedImg;
+            if (bgrBuffer == null || bgrBuffer.getWidth() != img.getWidth() || bgrBuffer.getHeight() != img.getHeight()) {
+                allocateFrameBuffers(img.getWidth(), img.getHeight());
+            }
+            if (img.getType() == BufferedImage.TYPE_INT_RGB && img.getRaster().getParent() == null) {
+                // What Robot captures. Unpacked by hand, drawing through Java2D would open the display
+                // connection during warm-up, before a CRaC checkpoint.
+                int[] rgb = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+                byte[] bgr = ((DataBufferByte) bgrBuffer.getRaster().getDataBuffer()).getData();
+                for (int i = 0, offset = 0; i < rgb.length; i++, offset += 3) {
+                    int pixel = rgb[i];
+                    bgr[offset] = (byte) pixel;
+                    bgr[offset + 1] = (byte) (pixel >> 8);
+                    bgr[offset + 2] = (byte) (pixel >> 16);
+                }
+            } else {
+                Graphics2D g = bgrBuffer.createGraphics();
+                g.drawImage(img, 0, 0, null);
+                g.dispose();
+            }
+            img = bgrBuffer;
         }
+        return img;
+    }
+
+    // Runs every detector on the frame in parallel, shared by the live loop and WarmUp
+    static List<Detection> detectAll(Mat matScreen, byte[] pixels, ExecutorService executorService) throws InterruptedException, ExecutionException {
+        List<Detection> detections = Collections.synchronizedList(new ArrayList<>());
+
+        // Taken before any task draws on matScreen, frame differencing would see the annotations as
+        // motion. The HSV frame is shared with block detection.
+        Mat hsvScreen = new Mat();
+        Imgproc.cvtColor(matScreen, hsvScreen, Imgproc.COLOR_BGR2HSV);
+        Mat grayScreen = new Mat();
+        Imgproc.cvtColor(matScreen, grayScreen, Imgproc.COLOR_BGR2GRAY);
+
+        Future<Void> circlesFuture = executorService.submit(() -> {
+            CircleDetectionUtils.detectCircles(matScreen, pixels, detections);
+            return null;
+        });
+
+        Future<Void> blocksFuture = executorService.submit(() -> {
+            BlockDetectionUtils.detectObjects(matScreen, hsvScreen, detections);
+            return null;
+        });
+
+        Future<Void> upgradesFuture = executorService.submit(() -> {
+            UpgradeDetectionUtils.detectUpgradePossibility(matScreen, detections);
+            return null;
+        });
+
+        Future<Void> bulletsFuture = executorService.submit(() -> {
+            BulletDetectionUtils.detectBullets(grayScreen, hsvScreen, matScreen, false, detections);
+            return null;
+        });
+
+        circlesFuture.get();
+        blocksFuture.get();
+        upgradesFuture.get();
+        bulletsFuture.get();
+
+        // Drawn only now so the other detectors never see the bullet markers
+        BulletDetectionUtils.drawBullets(matScreen, detections);
+        return detections;
+    }
+
+    static Mat bufferedImageToMat(BufferedImage img) {
+        img = toBgrImage(img);
         Mat mat = new Mat(img.getHeight(), img.getWidth(), CvType.CV_8UC3);
         byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
         mat.put(0, 0, pixels);
@@ -0,0 +1,324 @@
+import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Sweeps DetectionParams over a labelled screenshot corpus.
+//
+// The corpus is a directory of captures (name.png), each with a label file (name.txt) holding one
+// object per line as "type,x,y", where type is a Detection type such as "self", "enemy_tank" or
+// "Block (Square)". Lines starting with # are ignored.
+//
+// Usage: ParameterTuner <corpus dir> [grid | random <candidates>] [seed]
+public class ParameterTuner {
+
+    // A detection this close to a label of the same type counts as a true positive
+    private static final double MATCH_DISTANCE = 20;
+    private static final int TOP_RESULTS = 10;
+    // Passes over the corpus when timing a candidate, the fastest one counts
+    private static final int TIMING_PASSES = 3;
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    // A corpus frame with the conversions every candidate would otherwise redo
+    private record CachedFrame(Mat bgr, byte[] pixels, Mat hsv, Mat gray, List<Detection> labels) {}
+
+    private record CandidateResult(DetectionParams params, int truePositives, int falsePositives, int falseNegatives, double millisPerFrame) {
+        double precision() {
+            return truePositives + falsePositives == 0 ? 0 : (double) truePositives / (truePositives + falsePositives);
+        }
+
+        double recall() {
+            return truePositives + falseNegatives == 0 ? 0 : (double) truePositives / (truePositives + falseNegatives);
+        }
+
+        double f1() {
+            double precision = precision();
+            double recall = recall();
+            return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+        }
+
+        CandidateResult withMillisPerFrame(double millis) {
+            return new CandidateResult(params, truePositives, falsePositives, falseNegatives, millis);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ParameterTuner <corpus dir> [grid | random <candidates>] [seed]");
+            return;
+        }
+
+        List<CachedFrame> corpus = loadCorpus(new File(args[0]));
+        if (corpus.isEmpty()) {
+            System.out.println("No labelled frames found in " + args[0]);
+            return;
+        }
+
+        boolean random = args.length > 1 && "random".equals(args[1]);
+        int candidateCount = random && args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        List<DetectionParams> candidates = random ? randomCandidates(candidateCount, new Random(seed)) : gridCandidates();
+
+        System.out.println("Evaluating " + candidates.size() + " candidates on " + corpus.size() + " frames using "
+                + ForkJoinPool.commonPool().getParallelism() + " workers");
+
+        // Accuracy only, timings taken while every worker and OpenCV's own threads compete for the
+        // cores would say little. This pass also gets the JIT and OpenCV warm for the timing below.
+        CandidateResult[] results = new CandidateResult[candidates.size()];
+        ForkJoinPool.commonPool().invoke(new EvaluateTask(corpus, candidates, results, 0, candidates.size()));
+        CandidateResult baseline = results[0];
+
+        // Best F1 first, then the survivors are timed one at a time on this thread
+        Arrays.sort(results, Comparator.comparingDouble(CandidateResult::f1).reversed());
+        CandidateResult[] top = Arrays.copyOf(results, Math.min(TOP_RESULTS, results.length));
+        for (int i = 0; i < top.length; i++) {
+            top[i] = top[i].withMillisPerFrame(millisPerFrame(corpus, top[i].params()));
+        }
+        baseline = baseline.withMillisPerFrame(millisPerFrame(corpus, baseline.params()));
+
+        System.out.printf("Defaults: precision %.3f, recall %.3f, F1 %.3f, %.2f ms/frame%n",
+                baseline.precision(), baseline.recall(), baseline.f1(), baseline.millisPerFrame());
+
+        // Cheaper candidate wins a tie
+        Arrays.sort(top, Comparator.comparingDouble(CandidateResult::f1).reversed()
+                .thenComparingDouble(CandidateResult::millisPerFrame));
+
+        for (int i = 0; i < top.length; i++) {
+            CandidateResult result = top[i];
+            System.out.printf("#%d precision %.3f, recall %.3f, F1 %.3f, %.2f ms/frame%n    %s%n",
+                    i + 1, result.precision(), result.recall(), result.f1(), result.millisPerFrame(), result.params());
+        }
+    }
+
+    // Reads and converts every frame once, candidates only ever read these Mats
+    private static List<CachedFrame> loadCorpus(File directory) throws IOException {
+        List<CachedFrame> corpus = new ArrayList<>();
+        File[] images = directory.listFiles((dir, name) -> name.endsWith(".png"));
+        if (images == null) {
+            return corpus;
+        }
+        Arrays.sort(images);
+
+        for (File image : images) {
+            File labelFile = new File(directory, image.getName().replaceAll("\\.png$", ".txt"));
+            if (!labelFile.exists()) {
+                System.out.println("Skipping " + image.getName() + ", no label file");
+                continue;
+            }
+
+            Mat bgr = Imgcodecs.imread(image.getPath());
+            if (bgr.empty()) {
+                System.out.println("Skipping " + image.getName() + ", could not be read");
+                continue;
+            }
+
+            Mat hsv = new Mat();
+            Imgproc.cvtColor(bgr, hsv, Imgproc.COLOR_BGR2HSV);
+            // Raw BGR bytes, the same layout as the live capture raster
+            byte[] pixels = new byte[bgr.rows() * bgr.cols() * 3];
+            bgr.get(0, 0, pixels);
+
+            corpus.add(new CachedFrame(bgr, pixels, hsv, CircleDetectionUtils.preprocess(bgr), readLabels(labelFile)));
+        }
+        return corpus;
+    }
+
+    private static List<Detection> readLabels(File labelFile) throws IOException {
+        List<Detection> labels = new ArrayList<>();
+        for (String line : Files.readAllLines(labelFile.toPath())) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split(",");
+            if (parts.length != 3) {
+                throw new IOException("Bad label line in " + labelFile.getName() + ": " + line);
+            }
+            labels.add(new Detection(parts[0].trim(), new Point(Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()))));
+        }
+        return labels;
+    }
+
+    // Splits the candidate range in half until it is small enough to evaluate on one worker
+    private static class EvaluateTask extends RecursiveAction {
+        private static final int SEQUENTIAL_CANDIDATES = 2;
+        private final List<CachedFrame> corpus;
+        private final List<DetectionParams> candidates;
+        private final CandidateResult[] results;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(List<CachedFrame> corpus, List<DetectionParams> candidates, CandidateResult[] results, int from, int to) {
+            this.corpus = corpus;
+            this.candidates = candidates;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_CANDIDATES) {
+                for (int i = from; i < to; i++) {
+                    results[i] = evaluate(corpus, candidates.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(corpus, candidates, results, from, middle),
+                    new EvaluateTask(corpus, candidates, results, middle, to));
+        }
+    }
+
+    private static CandidateResult evaluate(List<CachedFrame> corpus, DetectionParams params) {
+        int truePositives = 0;
+        int falsePositives = 0;
+        int falseNegatives = 0;
+
+        for (CachedFrame frame : corpus) {
+            List<Detection> detections = detect(frame, params);
+            int matched = countMatched(frame.labels(), detections);
+            truePositives += matched;
+            falsePositives += detections.size() - matched;
+            falseNegatives += frame.labels().size() - matched;
+        }
+
+        return new CandidateResult(params, truePositives, falsePositives, falseNegatives, Double.NaN);
+    }
+
+    // Fastest of TIMING_PASSES runs over the corpus, divided by its size
+    private static double millisPerFrame(List<CachedFrame> corpus, DetectionParams params) {
+        long fastestNanos = Long.MAX_VALUE;
+        for (int pass = 0; pass < TIMING_PASSES; pass++) {
+            long start = System.nanoTime();
+            for (CachedFrame frame : corpus) {
+                detect(frame, params);
+            }
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+        return fastestNanos / 1e6 / corpus.size();
+    }
+
+    private static List<Detection> detect(CachedFrame frame, DetectionParams params) {
+        List<Detection> detections = new ArrayList<>();
+        detections.addAll(BlockDetectionUtils.detectWithMask(frame.hsv(), params.lowerRed(), params.upperRed(), frame.bgr(), "block_red", params, false));
+        detections.addAll(BlockDetectionUtils.detectWithMask(frame.hsv(), params.lowerYellow(), params.upperYellow(), frame.bgr(), "block_yellow", params, false));
+        detections.addAll(BlockDetectionUtils.detectWithMask(frame.hsv(), params.lowerPurple(), params.upperPurple(), frame.bgr(), "block_purple", params, false));
+        CircleDetectionUtils.detectCircles(frame.bgr(), frame.pixels(), frame.gray(), params, false, detections);
+        return detections;
+    }
+
+    // Greedy one-to-one matching of detections to labels of the same type
+    private static int countMatched(List<Detection> labels, List<Detection> detections) {
+        boolean[] used = new boolean[detections.size()];
+        int matched = 0;
+        for (Detection label : labels) {
+            int best = -1;
+            double bestDistance = MATCH_DISTANCE * MATCH_DISTANCE;
+            for (int i = 0; i < detections.size(); i++) {
+                Detection detection = detections.get(i);
+                if (used[i] || !label.type().equals(detection.type())) continue;
+
+                double dx = detection.position().x - label.position().x;
+                double dy = detection.position().y - label.position().y;
+                double distance = dx * dx + dy * dy;
+                if (distance <= bestDistance) {
+                    best = i;
+                    bestDistance = distance;
+                }
+            }
+            if (best != -1) {
+                used[best] = true;
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    // Hough thresholds against a common scale on every area window, the defaults come first
+    private static List<DetectionParams> gridCandidates() {
+        List<DetectionParams> candidates = new ArrayList<>();
+        candidates.add(DetectionParams.DEFAULTS);
+        for (double param1 : new double[]{60, 80, 100, 120}) {
+            for (double param2 : new double[]{20, 25, 30, 35, 40}) {
+                for (double areaScale : new double[]{0.8, 0.9, 1.0, 1.1, 1.2}) {
+                    DetectionParams d = DetectionParams.DEFAULTS;
+                    // Already first in the list
+                    if (param1 == d.houghParam1() && param2 == d.houghParam2() && areaScale == 1.0) continue;
+
+                    candidates.add(new DetectionParams(
+                            d.lowerRed(), d.upperRed(), d.lowerYellow(), d.upperYellow(), d.lowerPurple(), d.upperPurple(),
+                            d.minTriangleArea() * areaScale, d.maxTriangleArea() * areaScale,
+                            d.minSquareArea() * areaScale, d.maxSquareArea() * areaScale,
+                            d.minPentagonArea() * areaScale, d.maxPentagonArea() * areaScale,
+                            param1, param2, d.houghMinRadius(), d.houghMaxRadius()));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    // Random perturbations of every constant around the defaults, the defaults come first
+    private static List<DetectionParams> randomCandidates(int count, Random random) {
+        List<DetectionParams> candidates = new ArrayList<>();
+        candidates.add(DetectionParams.DEFAULTS);
+        DetectionParams d = DetectionParams.DEFAULTS;
+        for (int i = 1; i < count; i++) {
+            int minRadius = 15 + random.nextInt(11);
+            double[] triangleArea = scaleWindow(d.minTriangleArea(), d.maxTriangleArea(), random);
+            double[] squareArea = scaleWindow(d.minSquareArea(), d.maxSquareArea(), random);
+            double[] pentagonArea = scaleWindow(d.minPentagonArea(), d.maxPentagonArea(), random);
+            candidates.add(new DetectionParams(
+                    perturbLower(d.lowerRed(), random), perturbUpper(d.upperRed(), random),
+                    perturbLower(d.lowerYellow(), random), perturbUpper(d.upperYellow(), random),
+                    perturbLower(d.lowerPurple(), random), perturbUpper(d.upperPurple(), random),
+                    triangleArea[0], triangleArea[1],
+                    squareArea[0], squareArea[1],
+                    pentagonArea[0], pentagonArea[1],
+                    40 + random.nextInt(81), 15 + random.nextInt(31),
+                    minRadius, minRadius + 15 + random.nextInt(16)));
+        }
+        return candidates;
+    }
+
+    // Hue moves by up to 5 either way, saturation and value floors by up to 30
+    private static Scalar perturbLower(Scalar lower, Random random) {
+        return new Scalar(
+                clamp(lower.val[0] + random.nextInt(11) - 5, 0, 180),
+                clamp(lower.val[1] + random.nextInt(61) - 30, 0, 255),
+                clamp(lower.val[2] + random.nextInt(61) - 30, 0, 255));
+    }
+
+    // Only the hue ceiling is tuned, saturation and value stay open to 255
+    private static Scalar perturbUpper(Scalar upper, Random random) {
+        return new Scalar(clamp(upper.val[0] + random.nextInt(11) - 5, 0, 180), upper.val[1], upper.val[2]);
+    }
+
+    // Both ends scaled by 0.7-1.3 independently, swapped back if they crossed. An inverted
+    // window would turn the shape class off without saying so.
+    private static double[] scaleWindow(double min, double max, Random random) {
+        double scaledMin = scale(min, random);
+        double scaledMax = scale(max, random);
+        return new double[]{Math.min(scaledMin, scaledMax), Math.max(scaledMin, scaledMax)};
+    }
+
+    private static double scale(double value, Random random) {
+        return Math.round(value * (0.7 + random.nextDouble() * 0.6));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
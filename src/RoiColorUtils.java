@@ -0,0 +1,166 @@
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// Pure-Java SIMD color kernels for small regions of a BGR capture raster (3 bytes per pixel,
+// rows stride bytes apart). On tiny regions the JNI round trips into OpenCV cost more than
+// the pixel work, larger regions should stay on OpenCV (see RoiKernelBenchmark).
+// Needs --add-modules jdk.incubator.vector at compile and run time.
+public class RoiColorUtils {
+
+    // Regions up to this many pixels go through here, RoiKernelBenchmark finds the crossover on a given machine
+    public static final int MAX_JAVA_ROI_PIXELS = 32 * 32;
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    // OpenCV's 8-bit BGR2HSV divides through tables of round((255 << 12) / v) and
+    // round((180 << 12) / (6 * diff)). Float division gives exactly those values for 1-255,
+    // so the vector path computes them instead of looking them up lane by lane.
+    private static final int HSV_SHIFT = 12;
+    private static final int HSV_ROUND = 1 << (HSV_SHIFT - 1);
+    private static final float SDIV_SCALE = 255 << HSV_SHIFT;
+    private static final float HDIV_SCALE = (180 << HSV_SHIFT) / 6f;
+
+    // The detectors call in from several threads, each keeps its own unpacked channels
+    private static final ThreadLocal<Channels> CHANNELS = ThreadLocal.withInitial(Channels::new);
+
+    // Counts the pixels whose HSV lies in [lower, upper] (inclusive, like Core.inRange)
+    public static int countInRange(byte[] bgr, int stride, int x, int y, int width, int height, double[] lower, double[] upper) {
+        Channels channels = unpack(bgr, stride, x, y, width, height);
+        int pixels = width * height;
+        int lowerH = (int) Math.ceil(lower[0]), upperH = (int) Math.floor(upper[0]);
+        int lowerS = (int) Math.ceil(lower[1]), upperS = (int) Math.floor(upper[1]);
+        int lowerV = (int) Math.ceil(lower[2]), upperV = (int) Math.floor(upper[2]);
+        int count = 0;
+
+        for (int i = 0; i < pixels; i += LANES) {
+            IntVector b = IntVector.fromArray(SPECIES, channels.b, i);
+            IntVector g = IntVector.fromArray(SPECIES, channels.g, i);
+            IntVector r = IntVector.fromArray(SPECIES, channels.r, i);
+            IntVector value = b.max(g).max(r);
+            IntVector diff = value.sub(b.min(g).min(r));
+            IntVector hue = hue(b, g, r, value, diff);
+            IntVector saturation = saturation(value, diff);
+
+            // The padding past the last pixel is black, which some ranges include
+            VectorMask<Integer> inside = SPECIES.indexInRange(i, pixels)
+                    .and(hue.compare(VectorOperators.GE, lowerH))
+                    .and(hue.compare(VectorOperators.LE, upperH))
+                    .and(saturation.compare(VectorOperators.GE, lowerS))
+                    .and(saturation.compare(VectorOperators.LE, upperS))
+                    .and(value.compare(VectorOperators.GE, lowerV))
+                    .and(value.compare(VectorOperators.LE, upperV));
+            count += inside.trueCount();
+        }
+        return count;
+    }
+
+    // Mean B, G, R over the region, like Core.mean on a BGR Mat
+    public static double[] meanBgr(byte[] bgr, int stride, int x, int y, int width, int height) {
+        Channels channels = unpack(bgr, stride, x, y, width, height);
+        int pixels = width * height;
+        IntVector sumB = IntVector.zero(SPECIES);
+        IntVector sumG = IntVector.zero(SPECIES);
+        IntVector sumR = IntVector.zero(SPECIES);
+
+        // The padding is zero, so it adds nothing to the sums
+        for (int i = 0; i < pixels; i += LANES) {
+            sumB = sumB.add(IntVector.fromArray(SPECIES, channels.b, i));
+            sumG = sumG.add(IntVector.fromArray(SPECIES, channels.g, i));
+            sumR = sumR.add(IntVector.fromArray(SPECIES, channels.r, i));
+        }
+
+        // Int lanes are enough for regions below ~8M pixels, far beyond what should run here
+        double count = Math.max(1, pixels);
+        return new double[]{
+                sumB.reduceLanesToLong(VectorOperators.ADD) / count,
+                sumG.reduceLanesToLong(VectorOperators.ADD) / count,
+                sumR.reduceLanesToLong(VectorOperators.ADD) / count
+        };
+    }
+
+    // Packed 0x00HHSSVV for the pixel at (x, y), a single pixel isn't worth a vector pass
+    public static int hsvAt(byte[] bgr, int stride, int x, int y) {
+        int offset = y * stride + x * 3;
+        return hsvScalar(bgr[offset] & 0xFF, bgr[offset + 1] & 0xFF, bgr[offset + 2] & 0xFF);
+    }
+
+    // Copies the region's channels into one flat run per channel, zero padded to whole vectors.
+    // The kernels then vectorize across rows, a 10 px row alone is shorter than a 16-lane vector.
+    // The split itself stays scalar: done with rearranges it measured 2-4x slower on JDK 21.
+    private static Channels unpack(byte[] bgr, int stride, int x, int y, int width, int height) {
+        Channels channels = CHANNELS.get();
+        int pixels = width * height;
+        int padded = (pixels + LANES - 1) / LANES * LANES;
+        channels.ensureCapacity(padded);
+
+        int[] b = channels.b, g = channels.g, r = channels.r;
+        int i = 0;
+        for (int row = y; row < y + height; row++) {
+            int offset = row * stride + x * 3;
+            for (int col = 0; col < width; col++, offset += 3, i++) {
+                b[i] = bgr[offset] & 0xFF;
+                g[i] = bgr[offset + 1] & 0xFF;
+                r[i] = bgr[offset + 2] & 0xFF;
+            }
+        }
+        Arrays.fill(b, pixels, padded, 0);
+        Arrays.fill(g, pixels, padded, 0);
+        Arrays.fill(r, pixels, padded, 0);
+        return channels;
+    }
+
+    private static IntVector saturation(IntVector value, IntVector diff) {
+        return diff.mul(divide(SDIV_SCALE, value)).add(HSV_ROUND).lanewise(VectorOperators.ASHR, HSV_SHIFT);
+    }
+
+    private static IntVector hue(IntVector b, IntVector g, IntVector r, IntVector value, IntVector diff) {
+        // Red max wins over green max, matching OpenCV when two channels tie
+        IntVector numerator = r.sub(g).add(diff.mul(4))
+                .blend(b.sub(r).add(diff.mul(2)), value.eq(g))
+                .blend(g.sub(b), value.eq(r));
+        IntVector hue = numerator.mul(divide(HDIV_SCALE, diff)).add(HSV_ROUND).lanewise(VectorOperators.ASHR, HSV_SHIFT);
+        return hue.add(180, hue.compare(VectorOperators.LT, 0));
+    }
+
+    // round(scale / divisor) per lane. A zero divisor is taken as 1, the value it scales is 0 then anyway.
+    private static IntVector divide(float scale, IntVector divisor) {
+        FloatVector quotient = FloatVector.broadcast(FLOAT_SPECIES, scale)
+                .div((FloatVector) divisor.max(1).convert(VectorOperators.I2F, 0))
+                .add(0.5f);
+        return (IntVector) quotient.convert(VectorOperators.F2I, 0);
+    }
+
+    // Packed 0x00HHSSVV for one pixel, the scalar form of the vector path
+    private static int hsvScalar(int b, int g, int r) {
+        int value = Math.max(b, Math.max(g, r));
+        int diff = value - Math.min(b, Math.min(g, r));
+        int saturation = (diff * (int) (SDIV_SCALE / Math.max(value, 1) + 0.5f) + HSV_ROUND) >> HSV_SHIFT;
+        int numerator = value == r ? g - b : value == g ? b - r + 2 * diff : r - g + 4 * diff;
+        int hue = (numerator * (int) (HDIV_SCALE / Math.max(diff, 1) + 0.5f) + HSV_ROUND) >> HSV_SHIFT;
+        if (hue < 0) {
+            hue += 180;
+        }
+        return (hue << 16) | (saturation << 8) | value;
+    }
+
+    private static class Channels {
+        int[] b = new int[0];
+        int[] g = new int[0];
+        int[] r = new int[0];
+
+        void ensureCapacity(int length) {
+            if (b.length < length) {
+                b = new int[length];
+                g = new int[length];
+                r = new int[length];
+            }
+        }
+    }
+}
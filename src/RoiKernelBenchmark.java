@@ -0,0 +1,110 @@
+import org.opencv.core.*;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Random;
+
+// Times each RoiColorUtils kernel against its OpenCV equivalent on the same region and finds the
+// first size where Java loses, to set MAX_JAVA_ROI_PIXELS. Run with --add-modules jdk.incubator.vector.
+public class RoiKernelBenchmark {
+
+    // Size of the captured half screen on a 1920x1080 display
+    private static final int FRAME_WIDTH = 960;
+    private static final int FRAME_HEIGHT = 1080;
+
+    private static final int[] SIZES = {4, 8, 10, 16, 24, 32, 48, 64, 96, 128, 192, 256};
+
+    // Same range CircleDetectionUtils counts in the centre window
+    private static final double[] LOWER_BLUE = {90, 150, 50};
+    private static final double[] UPPER_BLUE = {140, 255, 255};
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    // Keeps results alive so the JIT can't drop the work
+    private static double sink;
+
+    public static void main(String[] args) {
+        byte[] pixels = new byte[FRAME_WIDTH * FRAME_HEIGHT * 3];
+        new Random(42).nextBytes(pixels);
+        Mat frame = new Mat(FRAME_HEIGHT, FRAME_WIDTH, CvType.CV_8UC3);
+        frame.put(0, 0, pixels);
+
+        // First size where Java is slower than OpenCV, 0 while it hasn't lost yet
+        int countLoss = 0;
+        int meanLoss = 0;
+        System.out.printf("%6s  %14s  %14s  %14s  %14s%n", "size", "inRange cv ns", "inRange java", "mean cv ns", "mean java ns");
+        for (int size : SIZES) {
+            Rect roi = new Rect((FRAME_WIDTH - size) / 2, (FRAME_HEIGHT - size) / 2, size, size);
+            int iterations = Math.max(500, 20_000_000 / (size * size));
+
+            // First pass warms up both paths, second is measured
+            for (int pass = 0; pass < 2; pass++) {
+                double openCvCount = timeOpenCvCount(frame, roi, iterations);
+                double javaCount = timeJavaCount(pixels, roi, iterations);
+                double openCvMean = timeOpenCvMean(frame, roi, iterations);
+                double javaMean = timeJavaMean(pixels, roi, iterations);
+                if (pass == 0) {
+                    continue;
+                }
+
+                System.out.printf("%6d  %14.0f  %14.0f  %14.0f  %14.0f%n", size, openCvCount, javaCount, openCvMean, javaMean);
+                if (countLoss == 0 && javaCount >= openCvCount) {
+                    countLoss = size;
+                }
+                if (meanLoss == 0 && javaMean >= openCvMean) {
+                    meanLoss = size;
+                }
+            }
+        }
+        report("countInRange", countLoss);
+        report("meanBgr", meanLoss);
+    }
+
+    private static void report(String kernel, int loss) {
+        if (loss == 0) {
+            System.out.println(kernel + ": Java is faster at every size measured");
+        } else {
+            System.out.println(kernel + ": Java first loses at " + loss + "x" + loss + " (" + loss * loss + " pixels)");
+        }
+    }
+
+    // What CircleDetectionUtils runs on the centre window when the raster path is off
+    private static double timeOpenCvCount(Mat frame, Rect roi, int iterations) {
+        Mat hsv = new Mat();
+        Mat mask = new Mat();
+        Scalar lower = new Scalar(LOWER_BLUE);
+        Scalar upper = new Scalar(UPPER_BLUE);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Imgproc.cvtColor(new Mat(frame, roi), hsv, Imgproc.COLOR_BGR2HSV);
+            Core.inRange(hsv, lower, upper, mask);
+            sink += Core.countNonZero(mask);
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    private static double timeJavaCount(byte[] pixels, Rect roi, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += RoiColorUtils.countInRange(pixels, FRAME_WIDTH * 3, roi.x, roi.y, roi.width, roi.height, LOWER_BLUE, UPPER_BLUE);
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    private static double timeOpenCvMean(Mat frame, Rect roi, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += Core.mean(new Mat(frame, roi)).val[0];
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    private static double timeJavaMean(byte[] pixels, Rect roi, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += RoiColorUtils.meanBgr(pixels, FRAME_WIDTH * 3, roi.x, roi.y, roi.width, roi.height)[0];
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+}
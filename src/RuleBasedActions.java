@@ -8,15 +8,17 @@ public class RuleBasedActions {
     private static final double TARGET_APPROACH_THRESHOLD = 10000;
     private static final double BLOCK_AVOID_DISTANCE = 150;
     private static final double BULLET_SAFETY_DISTANCE = 2000;  // New threshold for "safe" bullet distance
-    private static final Random random = new Random();
-
-    // Class variables for random movement
-    private static double randomMoveX = 0;
-    private static double randomMoveY = 0;
-    private static long lastRandomMoveTime = 0;
     private static final long RANDOM_MOVE_DURATION = 3000;
 
+    // Random movement state for the live game
+    private static final RandomMove randomMove = new RandomMove(new Random());
+
     public static MoveAction ruleBasedActions(List<Detection> detections, Point playerPosition) {
+        return ruleBasedActions(detections, playerPosition, System.currentTimeMillis(), randomMove);
+    }
+
+    // Variant with an explicit clock and random movement state, so simulated episodes don't share them
+    public static MoveAction ruleBasedActions(List<Detection> detections, Point playerPosition, long currentTime, RandomMove randomMove) {
         // Default actions
         double moveX;
         double moveY;
@@ -103,18 +105,14 @@ public class RuleBasedActions {
         }
         // Perform random movement if no target or bullet is detected
         else {
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastRandomMoveTime > RANDOM_MOVE_DURATION || (randomMoveX == 0 && randomMoveY == 0)) {
-                randomMoveX = (random.nextDouble() * 2) - 1;
-                randomMoveY = (random.nextDouble() * 2) - 1;
-
-                double[] normalized = normalizeMovement(randomMoveX, randomMoveY);
-                randomMoveX = normalized[0];
-                randomMoveY = normalized[1];
-                lastRandomMoveTime = currentTime;
+            if (currentTime - randomMove.lastRandomMoveTime > RANDOM_MOVE_DURATION || (randomMove.randomMoveX == 0 && randomMove.randomMoveY == 0)) {
+                double[] normalized = normalizeMovement((randomMove.random.nextDouble() * 2) - 1, (randomMove.random.nextDouble() * 2) - 1);
+                randomMove.randomMoveX = normalized[0];
+                randomMove.randomMoveY = normalized[1];
+                randomMove.lastRandomMoveTime = currentTime;
             }
-            moveX = randomMoveX;
-            moveY = randomMoveY;
+            moveX = randomMove.randomMoveX;
+            moveY = randomMove.randomMoveY;
         }
 
         if (closestTarget != null) {
@@ -164,6 +162,18 @@ public class RuleBasedActions {
 
     public record MoveAction(double moveX, double moveY, Point target) {}
 
+    // Direction picked for random movement and when it was picked
+    public static class RandomMove {
+        private final Random random;
+        private double randomMoveX = 0;
+        private double randomMoveY = 0;
+        private long lastRandomMoveTime = 0;
+
+        public RandomMove(Random random) {
+            this.random = random;
+        }
+    }
+
     private static int getPriority(String objType) {
         return switch (objType) {
             case "enemy_tank", "enemy_drone" -> 4;
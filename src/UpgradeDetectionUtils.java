@@ -6,17 +6,16 @@ import java.util.List;
 
 public class UpgradeDetectionUtils {
     public static List<Detection> detectUpgradePossibility(Mat frame, List<Detection> detections) {
-        // Convert the frame to HSV
-        Mat hsvFrame = new Mat();
-        Imgproc.cvtColor(frame, hsvFrame, Imgproc.COLOR_BGR2HSV);
-
         // Define HSV range for the green bar (reload upgrade)
         Scalar lowerReload = new Scalar(50, 50, 50);  // Green
         Scalar upperReload = new Scalar(80, 255, 255);
 
         // Limit detection area to bottom left (where the upgrades are)
         Rect roi = new Rect(0, frame.rows() - (frame.rows() / 4), frame.cols() / 4, frame.rows() / 4);
-        Mat roiFrame = new Mat(hsvFrame, roi);  // Crop the region of interest (ROI)
+
+        // Convert only the region of interest (ROI) to HSV, it is too large for the RoiColorUtils path
+        Mat roiFrame = new Mat();
+        Imgproc.cvtColor(new Mat(frame, roi), roiFrame, Imgproc.COLOR_BGR2HSV);
 
         // Detect the upgrade bar
         detectUpgradeBar(roiFrame, lowerReload, upperReload, frame, detections, roi);
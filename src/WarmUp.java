@@ -0,0 +1,251 @@
+import org.opencv.core.*;
+import org.opencv.core.Point;
+import org.opencv.imgproc.Imgproc;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+// Runs the capture conversion, detection and decision code on generated frames until each stage's
+// timing settles and the JIT has gone quiet, so C2 has compiled the hot paths and OpenCV has
+// allocated its buffers before GameInputHandler is created. Otherwise the tank sits still for the
+// first few hundred frames.
+//
+// Options (system properties):
+//   diepio.warmup=false             skip warm-up
+//   diepio.warmup.exit=true         exit once warm, for an AppCDS training run with -XX:ArchiveClassesAtExit
+//   diepio.warmup.checkpoint=true   take a CRaC checkpoint once warm (needs a CRaC-enabled JDK, and the
+//                                   screen size from diepio.screen.width/height so the display is still closed)
+public class WarmUp {
+
+    private static final int SCENE_COUNT = 8;
+    // The slow start seen live lasts a few hundred frames. Wall time is mostly native OpenCV work,
+    // so the stage medians settle long before C2 is done with the Java code.
+    private static final int MIN_FRAMES = 300;
+    private static final int MAX_FRAMES = 1500;
+
+    // Stable once the median of the last WINDOW frames is within TOLERANCE of the WINDOW before,
+    // differences under MIN_DIFF_NANOS are treated as noise, and no compilation finished in the
+    // last WINDOW frames
+    private static final int WINDOW = 20;
+    private static final double TOLERANCE = 0.1;
+    private static final long MIN_DIFF_NANOS = 100_000;
+
+    private static final String[] STAGES = {"convert", "detect", "decide"};
+
+    // Game colors, in BGR
+    private static final Scalar BACKGROUND = new Scalar(205, 205, 205);
+    private static final Scalar GRID = new Scalar(195, 195, 195);
+    private static final Scalar SQUARE = new Scalar(105, 232, 255);
+    private static final Scalar TRIANGLE = new Scalar(119, 118, 252);
+    private static final Scalar PENTAGON = new Scalar(252, 141, 118);
+    private static final Scalar SELF = new Scalar(225, 178, 0);
+    private static final Scalar ENEMY = new Scalar(84, 78, 241);
+    private static final Scalar BARREL = new Scalar(153, 153, 153);
+    private static final Scalar UPGRADE = new Scalar(110, 240, 110);
+
+    public static void run(int width, int height, ExecutorService executorService) {
+        long start = System.nanoTime();
+
+        Main.allocateFrameBuffers(width, height);
+        BufferedImage[] scenes = createScenes(width, height);
+        RuleBasedActions.RandomMove randomMove = new RuleBasedActions.RandomMove(new Random(0));
+        long[][] samples = new long[STAGES.length][MAX_FRAMES];
+        long[] compileMillis = new long[MAX_FRAMES];
+
+        int frames = 0;
+        try {
+            while (frames < MAX_FRAMES) {
+                long convertStart = System.nanoTime();
+                BufferedImage screenImage = Main.toBgrImage(scenes[frames % SCENE_COUNT]);
+                byte[] pixels = ((DataBufferByte) screenImage.getRaster().getDataBuffer()).getData();
+                Mat matScreen = Main.bufferedImageToMat(screenImage);
+
+                long detectStart = System.nanoTime();
+                List<Detection> detections = Main.detectAll(matScreen, pixels, executorService);
+
+                long decideStart = System.nanoTime();
+                Point playerPosition = new Point(width / 2.0, height / 2.0);
+                for (Detection detection : detections) {
+                    if ("self".equals(detection.type())) {
+                        playerPosition = detection.position();
+                    }
+                }
+                // Own random movement state, so warm-up doesn't steer the first live frames
+                RuleBasedActions.ruleBasedActions(detections, playerPosition, System.currentTimeMillis(), randomMove);
+                long end = System.nanoTime();
+
+                samples[0][frames] = detectStart - convertStart;
+                samples[1][frames] = decideStart - detectStart;
+                samples[2][frames] = end - decideStart;
+                compileMillis[frames] = totalCompileMillis();
+                frames++;
+
+                if (frames >= MIN_FRAMES && isStable(samples, frames) && isCompilerQuiet(compileMillis, frames)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // A broken warm-up shouldn't keep the bot from starting
+            e.printStackTrace();
+        }
+
+        // The synthetic frames must not count as motion against the first real one
+        BulletDetectionUtils.reset();
+
+        report(samples, frames, System.nanoTime() - start);
+
+        if (Boolean.getBoolean("diepio.warmup.exit")) {
+            System.out.println("Warm-up finished, exiting (diepio.warmup.exit)");
+            System.exit(0);
+        }
+        if (Boolean.getBoolean("diepio.warmup.checkpoint")) {
+            checkpoint();
+        }
+
+        // After checkpoint(), so a restored run reports when it is ready rather than when the checkpoint was taken
+        System.out.printf("Steady-state first frame ready %d ms after JVM start%n", ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    private static boolean isStable(long[][] samples, int frames) {
+        if (frames < WINDOW * 2) {
+            return false;
+        }
+        for (long[] stage : samples) {
+            long previous = median(stage, frames - WINDOW * 2, frames - WINDOW);
+            long latest = median(stage, frames - WINDOW, frames);
+            if (Math.abs(latest - previous) > Math.max(previous * TOLERANCE, MIN_DIFF_NANOS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCompilerQuiet(long[] compileMillis, int frames) {
+        return frames > WINDOW && compileMillis[frames - 1] == compileMillis[frames - 1 - WINDOW];
+    }
+
+    // Total JIT time so far, or 0 where the JVM doesn't track it (then only the timings decide)
+    private static long totalCompileMillis() {
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        if (compiler == null || !compiler.isCompilationTimeMonitoringSupported()) {
+            return 0;
+        }
+        return compiler.getTotalCompilationTime();
+    }
+
+    private static long median(long[] values, int from, int to) {
+        long[] window = Arrays.copyOfRange(values, from, to);
+        Arrays.sort(window);
+        return window[window.length / 2];
+    }
+
+    private static void report(long[][] samples, int frames, long warmUpNanos) {
+        if (frames == 0) {
+            System.out.println("Warm-up did not complete a frame");
+            return;
+        }
+
+        StringBuilder stages = new StringBuilder();
+        for (int i = 0; i < STAGES.length; i++) {
+            long steady = median(samples[i], Math.max(0, frames - WINDOW), frames);
+            stages.append(String.format("%s %.2f -> %.2f ms", STAGES[i], samples[i][0] / 1e6, steady / 1e6));
+            if (i < STAGES.length - 1) {
+                stages.append(", ");
+            }
+        }
+
+        System.out.printf("Warm-up: %d frames in %d ms (%s)%n", frames, warmUpNanos / 1_000_000, stages);
+    }
+
+    // Checkpoint through reflection so the project still builds and runs on JDKs without CRaC.
+    // Execution resumes here on restore, with the compiled code already in place.
+    private static void checkpoint() {
+        try {
+            Class.forName("jdk.crac.Core").getMethod("checkpointRestore").invoke(null);
+            System.out.println("Restored from CRaC checkpoint");
+        } catch (ReflectiveOperationException e) {
+            System.out.println("CRaC checkpoint unavailable: " + e);
+        }
+    }
+
+    // Arena-like frames with every kind of object the detectors look for. Bullets move between
+    // scenes so the frame-difference detector runs its full path too. Drawn with OpenCV rather than
+    // Java2D, which would open the display connection before a CRaC checkpoint.
+    private static BufferedImage[] createScenes(int width, int height) {
+        BufferedImage[] scenes = new BufferedImage[SCENE_COUNT];
+        for (int scene = 0; scene < SCENE_COUNT; scene++) {
+            Mat frame = new Mat(height, width, CvType.CV_8UC3, BACKGROUND);
+            Random random = new Random(42);
+
+            for (int x = 0; x < width; x += 25) {
+                Imgproc.line(frame, new Point(x, 0), new Point(x, height), GRID);
+            }
+            for (int y = 0; y < height; y += 25) {
+                Imgproc.line(frame, new Point(0, y), new Point(width, y), GRID);
+            }
+
+            for (int i = 0; i < 12; i++) {
+                int x = random.nextInt(width - 40);
+                int y = random.nextInt(height - 40);
+                Imgproc.rectangle(frame, new Point(x, y), new Point(x + 27, y + 27), SQUARE, Imgproc.FILLED);
+            }
+            for (int i = 0; i < 6; i++) {
+                Imgproc.fillPoly(frame, List.of(regularPolygon(random.nextInt(width - 80) + 40, random.nextInt(height - 80) + 40, 22, 3)), TRIANGLE, Imgproc.LINE_AA);
+            }
+            for (int i = 0; i < 3; i++) {
+                Imgproc.fillPoly(frame, List.of(regularPolygon(random.nextInt(width - 100) + 50, random.nextInt(height - 100) + 50, 28, 5)), PENTAGON, Imgproc.LINE_AA);
+            }
+
+            fillTank(frame, width / 2, height / 2, SELF);
+            fillTank(frame, width / 4, height / 4, ENEMY);
+            fillTank(frame, width * 3 / 4, height * 2 / 3, ENEMY);
+
+            for (int i = 0; i < 20; i++) {
+                int x = (random.nextInt(width) + scene * 12) % width;
+                int y = random.nextInt(height);
+                Imgproc.circle(frame, new Point(x, y), 8, ENEMY, Imgproc.FILLED, Imgproc.LINE_AA);
+            }
+
+            Imgproc.rectangle(frame, new Point(20, height - height / 8), new Point(20 + width / 6 - 1, height - height / 8 + 17), UPGRADE, Imgproc.FILLED);
+
+            scenes[scene] = toIntRgbImage(frame);
+        }
+        return scenes;
+    }
+
+    private static void fillTank(Mat frame, int x, int y, Scalar color) {
+        Imgproc.rectangle(frame, new Point(x, y - 9), new Point(x + 49, y + 8), BARREL, Imgproc.FILLED);
+        Imgproc.circle(frame, new Point(x, y), 30, color, Imgproc.FILLED, Imgproc.LINE_AA);
+    }
+
+    private static MatOfPoint regularPolygon(int x, int y, int radius, int sides) {
+        Point[] corners = new Point[sides];
+        for (int i = 0; i < sides; i++) {
+            double angle = Math.PI * 2 * i / sides;
+            corners[i] = new Point(x + Math.round(Math.cos(angle) * radius), y + Math.round(Math.sin(angle) * radius));
+        }
+        return new MatOfPoint(corners);
+    }
+
+    // Same image type as Robot.createScreenCapture, so the conversion path is exercised
+    private static BufferedImage toIntRgbImage(Mat frame) {
+        byte[] bgr = new byte[frame.rows() * frame.cols() * 3];
+        frame.get(0, 0, bgr);
+        BufferedImage image = new BufferedImage(frame.cols(), frame.rows(), BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0, offset = 0; i < rgb.length; i++, offset += 3) {
+            rgb[i] = (bgr[offset + 2] & 0xFF) << 16 | (bgr[offset + 1] & 0xFF) << 8 | (bgr[offset] & 0xFF);
+        }
+        return image;
+    }
+}